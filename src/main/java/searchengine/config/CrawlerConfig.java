@@ -0,0 +1,11 @@
+package searchengine.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.config.properties.IndexingProperties;
+
+@Configuration
+@EnableConfigurationProperties({CrawlerProperties.class, IndexingProperties.class})
+public class CrawlerConfig {
+}
@@ -0,0 +1,33 @@
+package searchengine.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import searchengine.config.properties.MorphologyProperties;
+
+import java.io.IOException;
+
+@Configuration
+@Slf4j
+@EnableConfigurationProperties(MorphologyProperties.class)
+public class MorphologyConfig {
+
+    @Bean
+    public RussianLuceneMorphology russianLuceneMorphology() throws IOException {
+        long start = System.currentTimeMillis();
+        RussianLuceneMorphology morphology = new RussianLuceneMorphology();
+        log.info("Russian morphology loaded: {}ms", System.currentTimeMillis() - start);
+        return morphology;
+    }
+
+    @Bean
+    public EnglishLuceneMorphology englishLuceneMorphology() throws IOException {
+        long start = System.currentTimeMillis();
+        EnglishLuceneMorphology morphology = new EnglishLuceneMorphology();
+        log.info("English morphology loaded: {}ms", System.currentTimeMillis() - start);
+        return morphology;
+    }
+}
@@ -21,8 +21,4 @@ public class AppCacheProperties {
     public static class CacheProperties {
         private Duration expire = Duration.ZERO;
     }
-
-    public interface CacheNames {
-        String LEMMA_CACHE = "lemmaCache";
-    }
 }
@@ -0,0 +1,101 @@
+package searchengine.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.crawler")
+public class CrawlerProperties {
+
+    /**
+     * Минимальный интервал между запросами к одному хосту.
+     */
+    private Duration hostRequestInterval = Duration.ofMillis(200);
+
+    private int maxConcurrentRequestsPerHost = 4;
+
+    private int maxDepth = 20;
+
+    private int maxPagesPerSite = 50_000;
+
+    private int frontierCapacity = 100_000;
+
+    private int seenUrlsInitialCapacity = 100_000;
+
+    private double seenUrlsFalsePositiveRate = 0.001;
+
+    /**
+     * Сколько последних встреченных путей помнить точно, чтобы не проверять их по базе.
+     */
+    private int recentUrlsCacheSize = 10_000;
+
+    private FetchMode fetchMode = FetchMode.VIRTUAL;
+
+    /**
+     * Размер пула потоков загрузки в режиме PLATFORM.
+     */
+    private int fetchThreads = 64;
+
+    /**
+     * Размер пула разбора и лемматизации, 0 - по числу процессоров.
+     */
+    private int cpuThreads = 0;
+
+    private String userAgent = "HeliontSearchBot/1.0";
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Сколько ждать заголовков ответа после отправки запроса и, отдельно, сколько читать тело целиком.
+     */
+    private Duration readTimeout = Duration.ofSeconds(15);
+
+    /**
+     * Страницы больше этого размера (после распаковки) не индексируются.
+     */
+    private DataSize maxBodySize = DataSize.ofMegabytes(5);
+
+    private boolean respectRobotsTxt = true;
+
+    private Duration robotsTxtCacheTtl = Duration.ofHours(24);
+
+    /**
+     * Засевать очередь обхода адресами из sitemap.xml, а не только ссылками с главной страницы.
+     */
+    private boolean sitemapSeeding = true;
+
+    private int maxSitemapFiles = 50;
+
+    /**
+     * Ссылки на файлы с этими расширениями не обходятся.
+     */
+    private List<String> excludedExtensions = new ArrayList<>(List.of(
+            "jpg", "jpeg", "png", "gif", "svg", "webp", "ico", "bmp", "pdf", "doc", "docx", "xls", "xlsx",
+            "ppt", "pptx", "zip", "rar", "7z", "gz", "tar", "mp3", "mp4", "avi", "mov", "webm",
+            "css", "js", "json", "xml", "sql", "exe", "dmg", "apk"));
+
+    /**
+     * Ссылки, содержащие любую из этих подстрок (без учёта регистра), не обходятся.
+     */
+    private List<String> excludedUrlParts = new ArrayList<>(List.of("instagram", "tilda/click"));
+
+    /**
+     * Сохранять ли строку запроса в адресах страниц. Если нет, адреса с разными параметрами считаются одной страницей.
+     */
+    private boolean keepQueryStrings = false;
+
+    /**
+     * Параметры запроса, которые не влияют на содержимое страницы; utm_* отбрасываются всегда.
+     */
+    private List<String> ignoredQueryParameters = new ArrayList<>(List.of(
+            "fbclid", "gclid", "yclid", "_openstat", "from", "ref", "sessionid", "phpsessid"));
+
+    public enum FetchMode {
+        PLATFORM, VIRTUAL
+    }
+}
@@ -0,0 +1,36 @@
+package searchengine.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.indexing")
+public class IndexingProperties {
+
+    /**
+     * Сколько страниц одновременно может находиться между загрузкой и записью в базу.
+     */
+    private int pipelineCapacity = 512;
+
+    private int batchSize = 50;
+
+    private Duration flushInterval = Duration.ofSeconds(2);
+
+    /**
+     * Как часто записывать накопленные частоты лемм. Строки индекса пишутся с каждой пачкой страниц.
+     */
+    private Duration lemmaFlushInterval = Duration.ofSeconds(30);
+
+    /**
+     * Продолжать прерванный обход сайта вместо того, чтобы индексировать его заново.
+     */
+    private boolean resume = true;
+
+    /**
+     * Переиндексировать уже сохранённые сайты по разнице: страницы запрашиваются условными запросами,
+     * а леммы и индекс пересчитываются только для новых, изменившихся и исчезнувших страниц.
+     */
+    private boolean incremental = true;
+}
@@ -0,0 +1,13 @@
+package searchengine.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.morphology")
+public class MorphologyProperties {
+
+    private int cacheSize = 200_000;
+
+    private int cacheConcurrency = 16;
+}
@@ -0,0 +1,54 @@
+package searchengine.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.search")
+public class SearchProperties {
+
+    /**
+     * Сколько строк индекса драйвер получает с сервера за один раз при чтении списков страниц лемм.
+     * Списки читаются курсором, поэтому в памяти не бывает больше одной такой порции строк.
+     */
+    private int postingFetchSize = 10_000;
+
+    /**
+     * Держать обратный индекс в памяти и искать по нему, обращаясь к базе только за страницами выдачи.
+     * Индекс строится при старте в фоне, до его готовности поиск идёт по базе.
+     */
+    private boolean inMemoryIndex = false;
+
+    /**
+     * Насыщение BM25 по рангу леммы: чем больше, тем дольше повторы леммы на странице повышают её оценку.
+     */
+    private double bm25K1 = 1.2;
+
+    /**
+     * Доля, в которой BM25 штрафует страницы длиннее средней по сайту: 0 - длина не учитывается, 1 - полностью.
+     */
+    private double bm25B = 0.75;
+
+    /**
+     * Кэшировать результаты поиска: локально в LRU и общим уровнем в Redis.
+     * Записи становятся недействительными, когда индексация меняет индекс сайта.
+     */
+    private boolean resultCache = true;
+
+    private int resultCacheSize = 1_000;
+
+    private int resultCacheConcurrency = 8;
+
+    /**
+     * Как часто процесс перечитывает из Redis поколения индекса сайтов. Не дольше этого
+     * локальный уровень кэша может отдавать результат, устаревший после записи другим экземпляром.
+     */
+    private Duration resultCacheGenerationRefresh = Duration.ofSeconds(1);
+
+    /**
+     * Сколько результат живёт в Redis. Локальный уровень ограничен только размером.
+     */
+    private Duration resultCacheTtl = Duration.ofMinutes(10);
+}
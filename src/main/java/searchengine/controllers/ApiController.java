@@ -6,8 +6,6 @@ import searchengine.dto.statistics.*;
 import searchengine.services.IndexingService;
 import searchengine.services.StatisticsService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api")
 public class ApiController {
@@ -49,7 +47,6 @@ public class ApiController {
                                  @RequestParam @Nullable String site,
                                  @RequestParam @Nullable Integer offset,
                                  @RequestParam @Nullable Integer limit) {
-        List<DataResponse> responseList = indexingService.search(query, site, offset, limit);
-        return new SearchResponse(true, responseList.size(), responseList);
+        return indexingService.search(query, site, offset, limit);
     }
 }
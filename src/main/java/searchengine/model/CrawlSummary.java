@@ -0,0 +1,18 @@
+package searchengine.model;
+
+import lombok.Value;
+
+/**
+ * Итог обхода одного сайта.
+ */
+@Value
+public class CrawlSummary {
+
+    String siteUrl;
+
+    long indexedPages;
+
+    long unchangedPages;
+
+    long failedPages;
+}
@@ -0,0 +1,11 @@
+package searchengine.model;
+
+/**
+ * Состояние адреса в сохранённой очереди обхода: QUEUED - в памяти краулера,
+ * PENDING - только в базе, DONE - страница записана, REMOVED - сервер ответил, что сохранённой
+ * страницы больше нет (404/410 или уже не HTML). Адрес, обработка которого сорвалась,
+ * остаётся QUEUED: при продолжении обхода он снова станет PENDING.
+ */
+public enum CrawlUrlStatus {
+    QUEUED, PENDING, DONE, REMOVED
+}
@@ -0,0 +1,44 @@
+package searchengine.model;
+
+import lombok.Value;
+
+import java.net.URI;
+
+/**
+ * Ответ на запрос страницы. Тело есть только у принятых HTML-страниц,
+ * у отклонённых ответов заполнена причина отказа.
+ */
+@Value
+public class FetchedPage {
+
+    int statusCode;
+
+    URI uri;
+
+    byte[] body;
+
+    String charset;
+
+    String etag;
+
+    String lastModified;
+
+    String rejectReason;
+
+    public boolean isAccepted() {
+        return rejectReason == null;
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    /**
+     * Страницы больше нет на сайте (404, 410) или по адресу теперь отдаётся не HTML.
+     * Остальные отказы - ошибки сервера, 429 и прочие - считаются временными.
+     */
+    public boolean isRemoved() {
+        return statusCode == 404 || statusCode == 410
+                || !isAccepted() && statusCode >= 200 && statusCode < 300;
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.model;
+
+/**
+ * Настройки выдачи идентификаторов сущностям.
+ */
+public final class IdGeneration {
+
+    /**
+     * Сколько идентификаторов Hibernate берёт из последовательности за одно обращение.
+     * Должно совпадать с INCREMENT BY последовательностей в базе: меняется только вместе с миграцией.
+     */
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGeneration() {
+    }
+}
@@ -13,9 +13,14 @@ import lombok.NoArgsConstructor;
 public class Index {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "indexes_id_seq")
+    @SequenceGenerator(name = "indexes_id_seq", sequenceName = "indexes_id_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "site_id")
+    private Site site;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "page_id")
     private Page page;
@@ -0,0 +1,5 @@
+package searchengine.model;
+
+public enum Language {
+    RUSSIAN, ENGLISH
+}
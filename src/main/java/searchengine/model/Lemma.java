@@ -16,7 +16,8 @@ import java.util.List;
 public class Lemma {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lemmas_id_seq")
+    @SequenceGenerator(name = "lemmas_id_seq", sequenceName = "lemmas_id_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne
@@ -29,7 +30,6 @@ public class Lemma {
     @Column(nullable = false)
     private Integer frequency;
 
-    @OneToMany(mappedBy = "lemma", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
-    @org.hibernate.annotations.BatchSize(size = 500)
+    @OneToMany(mappedBy = "lemma", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Index> indexes = new ArrayList<>();
 }
@@ -0,0 +1,18 @@
+package searchengine.model;
+
+import lombok.Value;
+
+/**
+ * Лемма сайта без строк индекса: всё, что нужно поиску, чтобы выбрать и упорядочить леммы запроса.
+ */
+@Value
+public class LemmaFrequency {
+
+    long id;
+
+    long siteId;
+
+    String lemma;
+
+    int frequency;
+}
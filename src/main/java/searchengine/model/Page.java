@@ -19,7 +19,8 @@ import java.util.List;
 public class Page {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pages_id_seq")
+    @SequenceGenerator(name = "pages_id_seq", sequenceName = "pages_id_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne
@@ -36,6 +37,21 @@ public class Page {
     @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
     private String content;
 
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_modified", length = 64)
+    private String lastModified;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * Длина страницы в леммах с повторами, то есть сумма рангов её строк индекса
+     */
+    @Column(name = "lemma_count", nullable = false)
+    private int lemmaCount;
+
     @OneToMany(mappedBy = "page", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<searchengine.model.Index> indexes = new ArrayList<>();
 }
\ No newline at end of file
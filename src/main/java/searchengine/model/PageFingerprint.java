@@ -0,0 +1,21 @@
+package searchengine.model;
+
+import lombok.Value;
+
+/**
+ * Сохранённое состояние страницы, по которому повторный обход решает,
+ * изменилась ли она: валидаторы HTTP-кэша и хэш тела последнего ответа.
+ */
+@Value
+public class PageFingerprint {
+
+    Long id;
+
+    String path;
+
+    String etag;
+
+    String lastModified;
+
+    String contentHash;
+}
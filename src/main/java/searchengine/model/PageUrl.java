@@ -4,21 +4,18 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.List;
-
+/**
+ * Адрес в очереди обхода. Хранит только то, что нужно для загрузки:
+ * ни содержимого страницы, ни ссылок на родителя и детей, чтобы обход не держал в памяти граф сайта.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class PageUrl {
 
-    private List<PageUrl> children = new ArrayList<>();
-    private PageUrl parent;
-    private String headUrl;
     private String absolutePath;
     private String path;
-    private String content;
-    private int status;
+    private int depth;
 
     public PageUrl(String absolutePath) {
         this.absolutePath = absolutePath;
@@ -0,0 +1,194 @@
+package searchengine.model;
+
+import java.util.Arrays;
+
+/**
+ * Список страниц леммы в виде двух параллельных массивов, упорядоченных по id страницы.
+ * Для пересечения списков ранги совпавших страниц складываются.
+ */
+public class PostingList {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] pageIds;
+
+    private int[] ranks;
+
+    private int size;
+
+    public PostingList(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        this.pageIds = new long[capacity];
+        this.ranks = new int[capacity];
+    }
+
+    /**
+     * Страницы должны добавляться по возрастанию id.
+     */
+    public void add(long pageId, int rank) {
+        ensureCapacity();
+        pageIds[size] = pageId;
+        ranks[size] = rank;
+        size++;
+    }
+
+    /**
+     * Добавляет страницу на её место по порядку id или заменяет ранг уже имеющейся.
+     */
+    public void put(long pageId, int rank) {
+        int i = indexOf(pageId);
+        if (i >= 0) {
+            ranks[i] = rank;
+            return;
+        }
+        int insertAt = -i - 1;
+        if (insertAt == size) {
+            add(pageId, rank);
+            return;
+        }
+        ensureCapacity();
+        System.arraycopy(pageIds, insertAt, pageIds, insertAt + 1, size - insertAt);
+        System.arraycopy(ranks, insertAt, ranks, insertAt + 1, size - insertAt);
+        pageIds[insertAt] = pageId;
+        ranks[insertAt] = rank;
+        size++;
+    }
+
+    public void remove(long pageId) {
+        int i = indexOf(pageId);
+        if (i >= 0) {
+            System.arraycopy(pageIds, i + 1, pageIds, i, size - i - 1);
+            System.arraycopy(ranks, i + 1, ranks, i, size - i - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Удаляет страницы за один проход по списку.
+     *
+     * @param sortedPageIds id страниц по возрастанию
+     */
+    public void removeAll(long[] sortedPageIds) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (Arrays.binarySearch(sortedPageIds, pageIds[i]) < 0) {
+                pageIds[kept] = pageIds[i];
+                ranks[kept] = ranks[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * @return позиция страницы в списке или (-(точка вставки) - 1), как у {@link Arrays#binarySearch}
+     */
+    public int indexOf(long pageId) {
+        return Arrays.binarySearch(pageIds, 0, size, pageId);
+    }
+
+    public PostingList copy() {
+        PostingList copy = new PostingList(size);
+        System.arraycopy(pageIds, 0, copy.pageIds, 0, size);
+        System.arraycopy(ranks, 0, copy.ranks, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    public void trimToSize() {
+        if (pageIds.length > size) {
+            pageIds = Arrays.copyOf(pageIds, size);
+            ranks = Arrays.copyOf(ranks, size);
+        }
+    }
+
+    /**
+     * Оставляет страницы, которые есть в обоих списках, с суммой рангов.
+     */
+    public PostingList intersect(PostingList other) {
+        return intersect(other, true);
+    }
+
+    /**
+     * Оставляет страницы, которые есть в candidates, с рангами этого списка.
+     */
+    public PostingList retainAll(PostingList candidates) {
+        return intersect(candidates, false);
+    }
+
+    /**
+     * Проходит по меньшему списку, а в большем ищет галопом: шаг поиска удваивается до первого
+     * id не меньше искомого, затем позиция уточняется двоичным поиском. Время - O(m·log(n/m))
+     * для списков длиной m ≤ n, так что частая лемма почти не удорожает пересечение с редкой.
+     */
+    private PostingList intersect(PostingList other, boolean sumRanks) {
+        boolean thisIsSmaller = size <= other.size;
+        PostingList small = thisIsSmaller ? this : other;
+        PostingList large = thisIsSmaller ? other : this;
+        PostingList result = new PostingList(small.size);
+
+        int j = 0;
+        for (int i = 0; i < small.size && j < large.size; i++) {
+            long pageId = small.pageIds[i];
+            j = advance(large.pageIds, j, large.size, pageId);
+            if (j < large.size && large.pageIds[j] == pageId) {
+                int thisRank = thisIsSmaller ? small.ranks[i] : large.ranks[j];
+                int otherRank = thisIsSmaller ? large.ranks[j] : small.ranks[i];
+                result.add(pageId, sumRanks ? thisRank + otherRank : thisRank);
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return первая позиция не раньше from, где id не меньше target, или size
+     */
+    private static int advance(long[] ids, int from, int size, long target) {
+        if (from >= size || ids[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < size && ids[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        int position = Arrays.binarySearch(ids, low + 1, Math.min(high + 1, size), target);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private void ensureCapacity() {
+        if (size == pageIds.length) {
+            int capacity = Math.max(MIN_CAPACITY, size + (size >> 1));
+            pageIds = Arrays.copyOf(pageIds, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getPageId(int i) {
+        return pageIds[i];
+    }
+
+    public int getRank(int i) {
+        return ranks[i];
+    }
+
+    public Long[] getPageIds() {
+        Long[] ids = new Long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = pageIds[i];
+        }
+        return ids;
+    }
+}
@@ -1,5 +0,0 @@
-package searchengine.model;
-
-public enum SetSide {
-    RIGHT, LEFT
-}
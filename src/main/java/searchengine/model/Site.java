@@ -17,7 +17,8 @@ import java.util.List;
 public class Site {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sites_id_seq")
+    @SequenceGenerator(name = "sites_id_seq", sequenceName = "sites_id_seq", allocationSize = IdGeneration.ALLOCATION_SIZE)
     private Long id;
 
     @Enumerated(EnumType.STRING)
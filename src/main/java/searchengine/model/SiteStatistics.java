@@ -0,0 +1,24 @@
+package searchengine.model;
+
+import lombok.Value;
+
+/**
+ * Сводка индекса сайта для ранжирования: сколько на нём страниц и сколько всего лемм на этих страницах.
+ * Ведётся записью индекса, поиск её только читает.
+ */
+@Value
+public class SiteStatistics {
+
+    public static final SiteStatistics EMPTY = new SiteStatistics(0, 0);
+
+    long pages;
+
+    long lemmaCount;
+
+    /**
+     * @return средняя длина страницы сайта в леммах
+     */
+    public double getAverageLength() {
+        return pages == 0 ? 0.0 : (double) lemmaCount / pages;
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Адрес из sitemap.xml и дата его последнего изменения, если сайт её указал.
+ */
+@Value
+public class SitemapEntry {
+
+    String location;
+
+    Instant lastModified;
+}
@@ -0,0 +1,20 @@
+package searchengine.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class WordForms {
+
+    List<String> normalForms;
+
+    String partOfSpeech;
+
+    /**
+     * Союзы, предлоги, частицы и междометия в индекс не попадают.
+     */
+    public boolean isFunctionWord() {
+        return partOfSpeech.contains("|l") || partOfSpeech.contains("|n") || partOfSpeech.contains("|o");
+    }
+}
@@ -5,6 +5,6 @@ import searchengine.model.Lemma;
 
 import java.util.Optional;
 
-public interface LemmaRepository extends JpaRepository<Lemma, Long> {
+public interface LemmaRepository extends JpaRepository<Lemma, Long>, LemmaUpsertRepository {
     Optional<Lemma> findByLemmaAndSite_Url(String lemma, String siteUrl);
 }
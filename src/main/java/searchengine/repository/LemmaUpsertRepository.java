@@ -0,0 +1,16 @@
+package searchengine.repository;
+
+import java.util.Map;
+
+public interface LemmaUpsertRepository {
+
+    /**
+     * Одним запросом заводит недостающие леммы сайта и прибавляет приращения к частотам
+     * существующих. Опирается на уникальный ключ (site_id, lemma), поэтому не требует
+     * предварительного чтения и безопасен при конкурентной записи из нескольких потоков.
+     *
+     * @param increments приращение частоты каждой леммы, может быть нулевым
+     * @return идентификатор каждой леммы
+     */
+    Map<String, Long> upsertFrequencies(Long siteId, Map<String, Integer> increments);
+}
@@ -0,0 +1,38 @@
+package searchengine.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class LemmaUpsertRepositoryImpl implements LemmaUpsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Леммы сортируются, чтобы конкурентные upsert брали блокировки строк в одном порядке.
+     */
+    @Override
+    public Map<String, Long> upsertFrequencies(Long siteId, Map<String, Integer> increments) {
+        Map<String, Long> lemmaIds = new HashMap<>(increments.size() * 2);
+        if (increments.isEmpty()) {
+            return lemmaIds;
+        }
+        String[] lemmas = increments.keySet().stream().sorted().toArray(String[]::new);
+        Integer[] frequencies = new Integer[lemmas.length];
+        for (int i = 0; i < lemmas.length; i++) {
+            frequencies[i] = increments.get(lemmas[i]);
+        }
+
+        jdbcTemplate.query("INSERT INTO lemmas (site_id, lemma, frequency) " +
+                        "SELECT ?, l.lemma, l.frequency FROM unnest(?::varchar[], ?::int[]) AS l(lemma, frequency) " +
+                        "ON CONFLICT (site_id, lemma) DO UPDATE SET frequency = lemmas.frequency + excluded.frequency " +
+                        "RETURNING id, lemma",
+                (RowCallbackHandler) rs -> lemmaIds.put(rs.getString("lemma"), rs.getLong("id")),
+                siteId, lemmas, frequencies);
+        return lemmaIds;
+    }
+}
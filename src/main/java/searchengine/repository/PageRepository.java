@@ -3,8 +3,8 @@ package searchengine.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import searchengine.model.Index;
 import searchengine.model.Page;
+import searchengine.model.PageFingerprint;
 import searchengine.model.Site;
 
 import java.util.List;
@@ -16,9 +16,13 @@ public interface PageRepository extends JpaRepository<Page, Long> {
 
     List<Page> findBySite(Site site);
 
-    @Query("SELECT p FROM pages p " +
-            "JOIN p.indexes i " +
-            "WHERE i.id IN :indexIds")
-    List<Page> findByIndexIds(@Param("indexIds") List<Long> indexIds);
+    Optional<Page> findBySiteAndPath(Site site, String path);
+
+    @Query("SELECT new searchengine.model.PageFingerprint(p.id, p.path, p.etag, p.lastModified, p.contentHash) " +
+            "FROM pages p WHERE p.site = :site")
+    List<PageFingerprint> findFingerprintsBySite(@Param("site") Site site);
+
+    @Query("SELECT p.content FROM pages p WHERE p.id = :id")
+    Optional<String> findContentById(@Param("id") Long id);
 
 }
@@ -0,0 +1,37 @@
+package searchengine.repository;
+
+import searchengine.model.LemmaFrequency;
+import searchengine.model.PostingList;
+import searchengine.model.SiteStatistics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Откуда поиск берёт леммы и списки их страниц: из базы или из индекса в памяти.
+ */
+public interface PostingSource {
+
+    List<LemmaFrequency> findLemmas(Collection<String> lemmas, Collection<Long> siteIds);
+
+    PostingList findPostings(LemmaFrequency lemma);
+
+    /**
+     * Страницы леммы среди кандидатов. Реализация может вернуть и лишние страницы,
+     * вызывающий всё равно пересекает результат с кандидатами.
+     */
+    PostingList findPostings(LemmaFrequency lemma, PostingList candidates);
+
+    long countPages();
+
+    /**
+     * @return сводка каждого сайта; сайта без страниц в ней может не быть
+     */
+    Map<Long, SiteStatistics> findSiteStatistics(Collection<Long> siteIds);
+
+    /**
+     * @return длины страниц в леммах в порядке списка
+     */
+    int[] findPageLengths(long siteId, PostingList pages);
+}
@@ -0,0 +1,152 @@
+package searchengine.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import searchengine.config.properties.SearchProperties;
+import searchengine.model.LemmaFrequency;
+import searchengine.model.PostingList;
+import searchengine.model.SiteStatistics;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Чтение индекса для поиска и статистики мимо сущностей JPA: леммы читаются без строк индекса,
+ * списки страниц леммы - курсором в примитивные массивы.
+ * Курсор работает только внутри транзакции, иначе драйвер PostgreSQL читает результат целиком.
+ */
+@Repository
+public class SearchIndexRepository implements PostingSource {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate cursorJdbcTemplate;
+
+    public SearchIndexRepository(DataSource dataSource, SearchProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(properties.getPostingFetchSize());
+    }
+
+    @Override
+    public List<LemmaFrequency> findLemmas(Collection<String> lemmas, Collection<Long> siteIds) {
+        return jdbcTemplate.query("SELECT id, site_id, lemma, frequency FROM lemmas " +
+                        "WHERE site_id = ANY(?::bigint[]) AND lemma = ANY(?::varchar[]) AND frequency > 0",
+                (rs, rowNum) -> new LemmaFrequency(rs.getLong("id"), rs.getLong("site_id"),
+                        rs.getString("lemma"), rs.getInt("frequency")),
+                siteIds.toArray(Long[]::new), lemmas.toArray(String[]::new));
+    }
+
+    @Override
+    public PostingList findPostings(LemmaFrequency lemma) {
+        PostingList postings = new PostingList(lemma.getFrequency());
+        cursorJdbcTemplate.query("SELECT page_id, rank FROM indexes WHERE site_id = ? AND lemma_id = ? ORDER BY page_id",
+                (RowCallbackHandler) rs -> postings.add(rs.getLong(1), rs.getInt(2)), lemma.getSiteId(), lemma.getId());
+        return postings;
+    }
+
+    /**
+     * Читает страницы леммы только среди кандидатов, если их осталось меньше, чем страниц у леммы,
+     * иначе весь список.
+     */
+    @Override
+    public PostingList findPostings(LemmaFrequency lemma, PostingList candidates) {
+        if (candidates.size() >= lemma.getFrequency()) {
+            return findPostings(lemma);
+        }
+        PostingList postings = new PostingList(candidates.size());
+        cursorJdbcTemplate.query("SELECT page_id, rank FROM indexes WHERE site_id = ? AND lemma_id = ? AND page_id = ANY(?::bigint[]) " +
+                        "ORDER BY page_id",
+                (RowCallbackHandler) rs -> postings.add(rs.getLong(1), rs.getInt(2)),
+                lemma.getSiteId(), lemma.getId(), candidates.getPageIds());
+        return postings;
+    }
+
+    @Override
+    public long countPages() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM pages", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public Map<Long, SiteStatistics> findSiteStatistics(Collection<Long> siteIds) {
+        Map<Long, SiteStatistics> statistics = new HashMap<>();
+        jdbcTemplate.query("SELECT site_id, pages, lemma_count FROM site_statistics WHERE site_id = ANY(?::bigint[])",
+                (RowCallbackHandler) rs -> statistics.put(rs.getLong(1), new SiteStatistics(rs.getLong(2), rs.getLong(3))),
+                (Object) siteIds.toArray(Long[]::new));
+        return statistics;
+    }
+
+    /**
+     * Страницы читаются по порядку id, как и в списке, поэтому длины раскладываются одним проходом.
+     */
+    @Override
+    public int[] findPageLengths(long siteId, PostingList pages) {
+        int[] lengths = new int[pages.size()];
+        int[] position = {0};
+        cursorJdbcTemplate.query("SELECT id, lemma_count FROM pages WHERE site_id = ? AND id = ANY(?::bigint[]) ORDER BY id",
+                (RowCallbackHandler) rs -> {
+                    long pageId = rs.getLong(1);
+                    while (pages.getPageId(position[0]) < pageId) {
+                        position[0]++;
+                    }
+                    lengths[position[0]++] = rs.getInt(2);
+                }, siteId, pages.getPageIds());
+        return lengths;
+    }
+
+    public List<Long> findSiteIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM sites", Long.class);
+    }
+
+    public Map<Long, String> findLemmaNames(long siteId) {
+        Map<Long, String> lemmas = new HashMap<>();
+        jdbcTemplate.query("SELECT id, lemma FROM lemmas WHERE site_id = ?",
+                (RowCallbackHandler) rs -> lemmas.put(rs.getLong(1), rs.getString(2)), siteId);
+        return lemmas;
+    }
+
+    /**
+     * Строки индекса сайта по порядку лемм, внутри леммы - по порядку страниц. Читается курсором.
+     */
+    public void forEachPosting(long siteId, PostingHandler handler) {
+        cursorJdbcTemplate.query("SELECT lemma_id, page_id, rank FROM indexes WHERE site_id = ? ORDER BY lemma_id, page_id",
+                (RowCallbackHandler) rs -> handler.accept(rs.getLong(1), rs.getLong(2), rs.getInt(3)), siteId);
+    }
+
+    /**
+     * Страницы сайта с их длинами в леммах по порядку id. Читается курсором.
+     */
+    public void forEachPage(long siteId, PageHandler handler) {
+        cursorJdbcTemplate.query("SELECT id, lemma_count FROM pages WHERE site_id = ? ORDER BY id",
+                (RowCallbackHandler) rs -> handler.accept(rs.getLong(1), rs.getInt(2)), siteId);
+    }
+
+    public Map<Long, Integer> countPagesBySite() {
+        return countBySite("SELECT site_id, count(*) FROM pages GROUP BY site_id");
+    }
+
+    public Map<Long, Integer> countLemmasBySite() {
+        return countBySite("SELECT site_id, count(*) FROM lemmas WHERE frequency > 0 GROUP BY site_id");
+    }
+
+    private Map<Long, Integer> countBySite(String sql) {
+        Map<Long, Integer> counts = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> counts.put(rs.getLong(1), rs.getInt(2)));
+        return counts;
+    }
+
+    @FunctionalInterface
+    public interface PostingHandler {
+        void accept(long lemmaId, long pageId, int rank);
+    }
+
+    @FunctionalInterface
+    public interface PageHandler {
+        void accept(long pageId, int lemmaCount);
+    }
+}
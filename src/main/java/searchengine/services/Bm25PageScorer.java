@@ -0,0 +1,40 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Service;
+import searchengine.config.properties.SearchProperties;
+import searchengine.model.PostingList;
+import searchengine.model.SiteStatistics;
+
+/**
+ * BM25: вклад леммы растёт с её рангом на странице с насыщением, определяемым k1,
+ * уменьшается на страницах длиннее средней по сайту в степени b и тем больше, чем реже лемма на сайте.
+ */
+@Service
+public class Bm25PageScorer implements PageScorer {
+
+    private final double k1;
+
+    private final double b;
+
+    public Bm25PageScorer(SearchProperties properties) {
+        this.k1 = properties.getBm25K1();
+        this.b = properties.getBm25B();
+    }
+
+    @Override
+    public void accumulate(double[] scores, PostingList postings, int[] pageLengths, int documentFrequency,
+                          SiteStatistics statistics) {
+        // Сводка сайта могла отстать от частоты леммы, idf при этом не должен стать отрицательным
+        long pages = Math.max(statistics.getPages(), documentFrequency);
+        double idf = Math.log(1 + (pages - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        double averageLength = statistics.getAverageLength();
+        double constantNorm = k1 * (1 - b);
+        double lengthNorm = averageLength > 0 ? k1 * b / averageLength : 0;
+        double weight = idf * (k1 + 1);
+
+        for (int i = 0; i < scores.length; i++) {
+            int rank = postings.getRank(i);
+            scores[i] += weight * rank / (rank + constantNorm + lengthNorm * pageLengths[i]);
+        }
+    }
+}
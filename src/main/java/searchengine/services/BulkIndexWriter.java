@@ -0,0 +1,240 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.Page;
+import searchengine.repository.LemmaRepository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Запись пачки новых страниц: страницы вставляются одним многострочным INSERT,
+ * недостающие леммы - одним upsert, строки индекса уходят через COPY, а частоты лемм
+ * прибавляются одним UPDATE. Сводки сайтов для ранжирования обновляются одним upsert.
+ * Число обращений к базе не зависит от числа лемм и страниц в пачке.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkIndexWriter {
+
+    private static final int MAX_PATH_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LemmaRepository lemmaRepository;
+
+    private final InMemorySearchIndex inMemorySearchIndex;
+
+    private final SearchResultCache searchResultCache;
+
+    /**
+     * Записывает страницы и строки индекса. Недостающие леммы заводятся в той же транзакции,
+     * поэтому при откате не остаётся лемм, на которые уже сослался бы кэш вызывающего.
+     * Частоты лемм здесь не меняются, их накапливает и записывает вызывающий через {@link #addFrequencies}.
+     * Страница, путь которой уже записан (параллельным indexPage или прошлым обходом, не успевшим отметить её
+     * пройденной), не роняет пачку: она пропускается и возвращается в {@link WriteResult#getConflicts()}.
+     *
+     * @param pages         новые страницы; после записи у записанных заполнен id
+     * @param lemmaRanks    ранги лемм каждой страницы, в том же порядке, что и pages
+     * @param lemmaResolver заводит леммы через {@link #insertLemmas} и возвращает идентификаторы лемм по сайтам
+     */
+    @Transactional
+    public WriteResult write(List<Page> pages, List<Map<String, Integer>> lemmaRanks, LemmaResolver lemmaResolver) {
+        List<Page> accepted = new ArrayList<>(pages.size());
+        List<Map<String, Integer>> acceptedRanks = new ArrayList<>(pages.size());
+        List<Integer> acceptedPositions = new ArrayList<>(pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            if (pages.get(i).getPath().length() > MAX_PATH_LENGTH) {
+                log.warn("Page path is too long, skipped: {}", pages.get(i).getPath());
+                continue;
+            }
+            pages.get(i).setLemmaCount(lemmaRanks.get(i).values().stream().mapToInt(Integer::intValue).sum());
+            accepted.add(pages.get(i));
+            acceptedRanks.add(lemmaRanks.get(i));
+            acceptedPositions.add(i);
+        }
+        if (accepted.isEmpty()) {
+            return new WriteResult(0, List.of());
+        }
+
+        Map<Long, Set<String>> lemmasBySite = new HashMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            lemmasBySite.computeIfAbsent(accepted.get(i).getSite().getId(), siteId -> new HashSet<>())
+                    .addAll(acceptedRanks.get(i).keySet());
+        }
+        Map<Long, Map<String, Long>> lemmaIds = lemmaResolver.resolve(lemmasBySite);
+
+        insertPages(accepted);
+        List<Page> inserted = new ArrayList<>(accepted.size());
+        List<Map<String, Integer>> insertedRanks = new ArrayList<>(accepted.size());
+        List<Integer> conflicts = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            if (accepted.get(i).getId() == null) {
+                conflicts.add(acceptedPositions.get(i));
+            } else {
+                inserted.add(accepted.get(i));
+                insertedRanks.add(acceptedRanks.get(i));
+            }
+        }
+        if (inserted.isEmpty()) {
+            return new WriteResult(0, conflicts);
+        }
+
+        long rows = inserted.size() + copyIndexes(inserted, insertedRanks, lemmaIds);
+        addSiteStatistics(inserted);
+        Set<Long> siteIds = new HashSet<>();
+        for (int i = 0; i < inserted.size(); i++) {
+            Page page = inserted.get(i);
+            siteIds.add(page.getSite().getId());
+            inMemorySearchIndex.putPage(page.getSite().getId(), page.getId(), insertedRanks.get(i), List.of());
+        }
+        searchResultCache.invalidate(siteIds);
+        return new WriteResult(rows, conflicts);
+    }
+
+    /**
+     * Заводит леммы сайта с нулевой частотой; уже существующие не меняются.
+     *
+     * @return идентификатор каждой леммы
+     */
+    public Map<String, Long> insertLemmas(Long siteId, Collection<String> lemmas) {
+        Map<String, Integer> increments = new HashMap<>(lemmas.size() * 2);
+        lemmas.forEach(lemma -> increments.put(lemma, 0));
+        return lemmaRepository.upsertFrequencies(siteId, increments);
+    }
+
+    /**
+     * Прибавляет накопленные приращения частот одним запросом.
+     */
+    public void addFrequencies(Long[] lemmaIds, Integer[] deltas) {
+        jdbcTemplate.update("UPDATE lemmas SET frequency = lemmas.frequency + delta.value " +
+                        "FROM (SELECT unnest(?::bigint[]) AS id, unnest(?::int[]) AS value) delta " +
+                        "WHERE lemmas.id = delta.id",
+                lemmaIds, deltas);
+    }
+
+    /**
+     * Прибавляет к сводкам сайтов число и длину новых страниц. Сайты идут по порядку id,
+     * чтобы параллельные пачки блокировали строки сводок в одном порядке.
+     */
+    private void addSiteStatistics(List<Page> pages) {
+        Map<Long, long[]> bySite = new TreeMap<>();
+        for (Page page : pages) {
+            long[] statistics = bySite.computeIfAbsent(page.getSite().getId(), id -> new long[2]);
+            statistics[0]++;
+            statistics[1] += page.getLemmaCount();
+        }
+        Long[] siteIds = bySite.keySet().toArray(new Long[0]);
+        Long[] pageCounts = bySite.values().stream().map(statistics -> statistics[0]).toArray(Long[]::new);
+        Long[] lemmaCounts = bySite.values().stream().map(statistics -> statistics[1]).toArray(Long[]::new);
+
+        jdbcTemplate.update("INSERT INTO site_statistics (site_id, pages, lemma_count) " +
+                        "SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::bigint[]) " +
+                        "ON CONFLICT (site_id) DO UPDATE SET pages = site_statistics.pages + excluded.pages, " +
+                        "lemma_count = site_statistics.lemma_count + excluded.lemma_count",
+                siteIds, pageCounts, lemmaCounts);
+    }
+
+    /**
+     * Страницы с уже записанным путём не вставляются и остаются без id.
+     */
+    private void insertPages(List<Page> pages) {
+        int size = pages.size();
+        Long[] siteIds = new Long[size];
+        String[] paths = new String[size];
+        Integer[] codes = new Integer[size];
+        String[] contents = new String[size];
+        String[] etags = new String[size];
+        String[] lastModified = new String[size];
+        String[] contentHashes = new String[size];
+        Integer[] lemmaCounts = new Integer[size];
+        Map<String, Page> pagesByKey = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            Page page = pages.get(i);
+            siteIds[i] = page.getSite().getId();
+            paths[i] = page.getPath();
+            codes[i] = page.getCode();
+            contents[i] = page.getContent();
+            etags[i] = page.getEtag();
+            lastModified[i] = page.getLastModified();
+            contentHashes[i] = page.getContentHash();
+            lemmaCounts[i] = page.getLemmaCount();
+            pagesByKey.put(key(siteIds[i], paths[i]), page);
+        }
+
+        jdbcTemplate.query("INSERT INTO pages (site_id, path, code, content, etag, last_modified, content_hash, lemma_count) " +
+                        "SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::int[], ?::text[], ?::varchar[], ?::varchar[], ?::varchar[], ?::int[]) " +
+                        "ON CONFLICT (site_id, path) DO NOTHING RETURNING id, site_id, path",
+                (RowCallbackHandler) rs -> pagesByKey.get(key(rs.getLong("site_id"), rs.getString("path")))
+                        .setId(rs.getLong("id")),
+                siteIds, paths, codes, contents, etags, lastModified, contentHashes, lemmaCounts);
+    }
+
+    private long copyIndexes(List<Page> pages, List<Map<String, Integer>> lemmaRanks,
+                             Map<Long, Map<String, Long>> lemmaIds) {
+        StringBuilder rows = new StringBuilder();
+        long rowCount = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            Map<String, Long> siteLemmaIds = lemmaIds.get(page.getSite().getId());
+            for (Map.Entry<String, Integer> rank : lemmaRanks.get(i).entrySet()) {
+                rows.append(page.getSite().getId()).append('\t')
+                        .append(page.getId()).append('\t')
+                        .append(siteLemmaIds.get(rank.getKey())).append('\t')
+                        .append(rank.getValue()).append('\n');
+                rowCount++;
+            }
+        }
+        if (rowCount == 0) {
+            return 0;
+        }
+
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY indexes (site_id, page_id, lemma_id, rank) FROM STDIN", new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new IllegalStateException("COPY indexes failed", e);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    private static String key(Long siteId, String path) {
+        return siteId + "\n" + path;
+    }
+
+    @Value
+    public static class WriteResult {
+
+        long rows;
+
+        /**
+         * Позиции в pages страниц, путь которых уже был записан: их нужно переиндексировать поверх сохранённых
+         */
+        List<Integer> conflicts;
+    }
+
+    @FunctionalInterface
+    public interface LemmaResolver {
+        Map<Long, Map<String, Long>> resolve(Map<Long, Set<String>> lemmasBySite);
+    }
+}
@@ -0,0 +1,105 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import searchengine.model.CrawlUrlStatus;
+import searchengine.model.Page;
+import searchengine.model.PageUrl;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Хранит очередь обхода в таблице crawl_frontier, чтобы прерванную индексацию
+ * можно было продолжить с того же места.
+ */
+@Service
+@RequiredArgsConstructor
+public class CrawlCheckpointService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final RowMapper<PageUrl> PAGE_URL_MAPPER = (rs, rowNum) -> {
+        PageUrl pageUrl = new PageUrl(rs.getString("url"));
+        pageUrl.setPath(rs.getString("path"));
+        pageUrl.setDepth(rs.getInt("depth"));
+        return pageUrl;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void save(Long siteId, List<PageUrl> pageUrls, CrawlUrlStatus status) {
+        jdbcTemplate.batchUpdate("INSERT INTO crawl_frontier (site_id, url, path, depth, status) " +
+                        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (site_id, path) DO NOTHING",
+                pageUrls, BATCH_SIZE, (ps, pageUrl) -> {
+                    ps.setLong(1, siteId);
+                    ps.setString(2, pageUrl.getAbsolutePath());
+                    ps.setString(3, pageUrl.getPath());
+                    ps.setInt(4, pageUrl.getDepth());
+                    ps.setString(5, status.name());
+                });
+    }
+
+    public void markDone(List<Page> pages) {
+        jdbcTemplate.batchUpdate("UPDATE crawl_frontier SET status = 'DONE' WHERE site_id = ? AND path = ?",
+                pages, BATCH_SIZE, (ps, page) -> {
+                    ps.setLong(1, page.getSite().getId());
+                    ps.setString(2, page.getPath());
+                });
+    }
+
+    public void markRemoved(Long siteId, String path) {
+        jdbcTemplate.update("UPDATE crawl_frontier SET status = 'REMOVED' WHERE site_id = ? AND path = ?", siteId, path);
+    }
+
+    /**
+     * Забирает из базы очередную порцию отложенных адресов и помечает их как взятые в память.
+     */
+    public List<PageUrl> takePending(Long siteId, int limit) {
+        return jdbcTemplate.query("UPDATE crawl_frontier SET status = 'QUEUED' WHERE id IN (" +
+                        "SELECT id FROM crawl_frontier WHERE site_id = ? AND status = 'PENDING' ORDER BY id LIMIT ?) " +
+                        "RETURNING url, path, depth",
+                PAGE_URL_MAPPER, siteId, limit);
+    }
+
+    /**
+     * Адреса, которые были в памяти прерванного обхода, снова становятся отложенными.
+     */
+    public void resetQueued(Long siteId) {
+        jdbcTemplate.update("UPDATE crawl_frontier SET status = 'PENDING' WHERE site_id = ? AND status = 'QUEUED'", siteId);
+    }
+
+    public void forEachPath(Long siteId, Consumer<String> consumer) {
+        jdbcTemplate.query("SELECT path FROM crawl_frontier WHERE site_id = ?",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString("path")), siteId);
+    }
+
+    public Set<String> findExistingPaths(Long siteId, List<String> paths) {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT path FROM crawl_frontier WHERE site_id = ? AND path = ANY(?)",
+                String.class, siteId, paths.toArray(new String[0])));
+    }
+
+    public long countBySite(Long siteId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM crawl_frontier WHERE site_id = ?", Long.class, siteId);
+        return count == null ? 0 : count;
+    }
+
+    public long countByStatus(Long siteId, CrawlUrlStatus status) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM crawl_frontier WHERE site_id = ? AND status = ?",
+                Long.class, siteId, status.name());
+        return count == null ? 0 : count;
+    }
+
+    public boolean hasUnfinished(Long siteId) {
+        return countByStatus(siteId, CrawlUrlStatus.PENDING) + countByStatus(siteId, CrawlUrlStatus.QUEUED) > 0;
+    }
+
+    public void clear(Long siteId) {
+        jdbcTemplate.update("DELETE FROM crawl_frontier WHERE site_id = ?", siteId);
+    }
+}
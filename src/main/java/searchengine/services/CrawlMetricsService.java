@@ -0,0 +1,50 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import searchengine.worker.SeenUrlSet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Метрики обхода по сайтам. Датчики регистрируются один раз на сайт
+ * и показывают состояние текущего (или последнего) обхода.
+ */
+@Service
+@RequiredArgsConstructor
+public class CrawlMetricsService {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, SeenUrlSet> seenUrlSets = new ConcurrentHashMap<>();
+
+    public void registerSeenUrls(String siteUrl, SeenUrlSet seenUrls) {
+        if (seenUrlSets.put(siteUrl, seenUrls) != null) {
+            return;
+        }
+        Gauge.builder("crawler.seen.urls", this, metrics -> metrics.seenUrlsValue(siteUrl, SeenUrlSet::size))
+                .tag("site", siteUrl)
+                .register(meterRegistry);
+        Gauge.builder("crawler.seen.urls.memory", this, metrics -> metrics.seenUrlsValue(siteUrl, SeenUrlSet::memoryBytes))
+                .tag("site", siteUrl)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("crawler.seen.urls.false.positive.rate.estimated", this,
+                        metrics -> metrics.seenUrlsValue(siteUrl, SeenUrlSet::estimatedFalsePositiveRate))
+                .tag("site", siteUrl)
+                .register(meterRegistry);
+        Gauge.builder("crawler.seen.urls.false.positive.rate.observed", this,
+                        metrics -> metrics.seenUrlsValue(siteUrl, SeenUrlSet::observedFalsePositiveRate))
+                .tag("site", siteUrl)
+                .register(meterRegistry);
+    }
+
+    private double seenUrlsValue(String siteUrl, ToDoubleFunction<SeenUrlSet> value) {
+        SeenUrlSet seenUrls = seenUrlSets.get(siteUrl);
+        return seenUrls == null ? Double.NaN : value.applyAsDouble(seenUrls);
+    }
+}
@@ -0,0 +1,346 @@
+package searchengine.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.properties.SearchProperties;
+import searchengine.model.LemmaFrequency;
+import searchengine.model.PostingList;
+import searchengine.model.SiteStatistics;
+import searchengine.repository.PostingSource;
+import searchengine.repository.SearchIndexRepository;
+import searchengine.utils.AfterCommit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Обратный индекс в памяти: для каждого сайта словарь лемм со списками страниц и рангов в примитивных массивах.
+ * Строится из таблиц lemmas и indexes при старте приложения и дальше обновляется записью индексации
+ * после фиксации её транзакций. Пока индекс строится, поиск идёт по базе, а пришедшие обновления
+ * откладываются и применяются после построения.
+ * Включается настройкой app.search.in-memory-index.
+ */
+@Service
+@Slf4j
+public class InMemorySearchIndex implements PostingSource {
+
+    private final SearchProperties properties;
+
+    private final SearchIndexRepository searchIndexRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Map<Long, SiteIndex> sites = new ConcurrentHashMap<>();
+
+    private final Queue<Runnable> pendingUpdates = new ArrayDeque<>();
+
+    private volatile boolean ready;
+
+    private volatile boolean failed;
+
+    public InMemorySearchIndex(SearchProperties properties, SearchIndexRepository searchIndexRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.searchIndexRepository = searchIndexRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuilding() {
+        if (!properties.isInMemoryIndex()) {
+            return;
+        }
+        Thread thread = new Thread(this::build, "in-memory-index-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        long postings = 0;
+        try {
+            for (Long siteId : searchIndexRepository.findSiteIds()) {
+                SiteIndex siteIndex = readOnlyTransaction.execute(status -> loadSite(siteId));
+                sites.put(siteId, siteIndex);
+                postings += siteIndex.countPostings();
+            }
+        } catch (RuntimeException e) {
+            log.error("In-memory index build failed, search stays on the database", e);
+            synchronized (pendingUpdates) {
+                failed = true;
+                pendingUpdates.clear();
+                sites.clear();
+            }
+            return;
+        }
+
+        synchronized (pendingUpdates) {
+            pendingUpdates.forEach(Runnable::run);
+            pendingUpdates.clear();
+            ready = true;
+        }
+        log.info("In-memory index built: {} sites, {} postings, {}ms",
+                sites.size(), postings, System.currentTimeMillis() - start);
+    }
+
+    private SiteIndex loadSite(long siteId) {
+        Map<Long, String> lemmaNames = searchIndexRepository.findLemmaNames(siteId);
+        SiteIndex siteIndex = new SiteIndex();
+        PostingList[] current = new PostingList[1];
+        long[] currentLemmaId = {-1};
+
+        searchIndexRepository.forEachPosting(siteId, (lemmaId, pageId, rank) -> {
+            if (lemmaId != currentLemmaId[0]) {
+                currentLemmaId[0] = lemmaId;
+                current[0] = siteIndex.postings.computeIfAbsent(lemmaNames.get(lemmaId), lemma -> new PostingList(0));
+            }
+            current[0].add(pageId, rank);
+        });
+        searchIndexRepository.forEachPage(siteId, (pageId, lemmaCount) -> {
+            siteIndex.pages.add(pageId, lemmaCount);
+            siteIndex.lemmaCount += lemmaCount;
+        });
+
+        siteIndex.postings.values().forEach(PostingList::trimToSize);
+        siteIndex.pages.trimToSize();
+        return siteIndex;
+    }
+
+    @Override
+    public List<LemmaFrequency> findLemmas(Collection<String> lemmas, Collection<Long> siteIds) {
+        List<LemmaFrequency> found = new ArrayList<>();
+        for (Long siteId : siteIds) {
+            SiteIndex siteIndex = sites.get(siteId);
+            if (siteIndex == null) {
+                continue;
+            }
+            siteIndex.lock.readLock().lock();
+            try {
+                for (String lemma : lemmas) {
+                    PostingList postings = siteIndex.postings.get(lemma);
+                    if (postings != null) {
+                        found.add(new LemmaFrequency(0, siteId, lemma, postings.size()));
+                    }
+                }
+            } finally {
+                siteIndex.lock.readLock().unlock();
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public PostingList findPostings(LemmaFrequency lemma) {
+        SiteIndex siteIndex = sites.get(lemma.getSiteId());
+        if (siteIndex == null) {
+            return new PostingList(0);
+        }
+        siteIndex.lock.readLock().lock();
+        try {
+            PostingList postings = siteIndex.postings.get(lemma.getLemma());
+            return postings == null ? new PostingList(0) : postings.copy();
+        } finally {
+            siteIndex.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Кандидаты ищутся в списке леммы галопом, поэтому длинные списки частых лемм не копируются.
+     */
+    @Override
+    public PostingList findPostings(LemmaFrequency lemma, PostingList candidates) {
+        SiteIndex siteIndex = sites.get(lemma.getSiteId());
+        if (siteIndex == null) {
+            return new PostingList(0);
+        }
+        siteIndex.lock.readLock().lock();
+        try {
+            PostingList postings = siteIndex.postings.get(lemma.getLemma());
+            return postings == null ? new PostingList(0) : postings.retainAll(candidates);
+        } finally {
+            siteIndex.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countPages() {
+        long pages = 0;
+        for (SiteIndex siteIndex : sites.values()) {
+            siteIndex.lock.readLock().lock();
+            try {
+                pages += siteIndex.pages.size();
+            } finally {
+                siteIndex.lock.readLock().unlock();
+            }
+        }
+        return pages;
+    }
+
+    @Override
+    public Map<Long, SiteStatistics> findSiteStatistics(Collection<Long> siteIds) {
+        Map<Long, SiteStatistics> statistics = new HashMap<>();
+        for (Long siteId : siteIds) {
+            SiteIndex siteIndex = sites.get(siteId);
+            if (siteIndex == null) {
+                continue;
+            }
+            siteIndex.lock.readLock().lock();
+            try {
+                statistics.put(siteId, new SiteStatistics(siteIndex.pages.size(), siteIndex.lemmaCount));
+            } finally {
+                siteIndex.lock.readLock().unlock();
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * В списке страниц сайта вместо ранга хранится длина страницы.
+     */
+    @Override
+    public int[] findPageLengths(long siteId, PostingList pages) {
+        int[] lengths = new int[pages.size()];
+        SiteIndex siteIndex = sites.get(siteId);
+        if (siteIndex == null) {
+            return lengths;
+        }
+        siteIndex.lock.readLock().lock();
+        try {
+            for (int i = 0; i < pages.size(); i++) {
+                int position = siteIndex.pages.indexOf(pages.getPageId(i));
+                lengths[i] = position >= 0 ? siteIndex.pages.getRank(position) : 0;
+            }
+        } finally {
+            siteIndex.lock.readLock().unlock();
+        }
+        return lengths;
+    }
+
+    /**
+     * Записывает новое состояние страницы: ранги её лемм и леммы, которых на ней больше нет.
+     */
+    public void putPage(long siteId, long pageId, Map<String, Integer> ranks, Collection<String> removedLemmas) {
+        int lemmaCount = ranks.values().stream().mapToInt(Integer::intValue).sum();
+        afterCommit(() -> {
+            SiteIndex siteIndex = sites.computeIfAbsent(siteId, id -> new SiteIndex());
+            siteIndex.lock.writeLock().lock();
+            try {
+                ranks.forEach((lemma, rank) ->
+                        siteIndex.postings.computeIfAbsent(lemma, key -> new PostingList(0)).put(pageId, rank));
+                for (String lemma : removedLemmas) {
+                    PostingList postings = siteIndex.postings.get(lemma);
+                    if (postings != null) {
+                        postings.remove(pageId);
+                        if (postings.isEmpty()) {
+                            siteIndex.postings.remove(lemma);
+                        }
+                    }
+                }
+                int position = siteIndex.pages.indexOf(pageId);
+                siteIndex.lemmaCount += lemmaCount - (position >= 0 ? siteIndex.pages.getRank(position) : 0);
+                siteIndex.pages.put(pageId, lemmaCount);
+            } finally {
+                siteIndex.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Удаляет страницы сайта из всех списков одним проходом по словарю.
+     */
+    public void removePages(long siteId, Collection<Long> pageIds) {
+        if (pageIds.isEmpty()) {
+            return;
+        }
+        long[] sortedPageIds = pageIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        afterCommit(() -> {
+            SiteIndex siteIndex = sites.get(siteId);
+            if (siteIndex == null) {
+                return;
+            }
+            siteIndex.lock.writeLock().lock();
+            try {
+                siteIndex.postings.values().removeIf(postings -> {
+                    postings.removeAll(sortedPageIds);
+                    return postings.isEmpty();
+                });
+                for (long pageId : sortedPageIds) {
+                    int position = siteIndex.pages.indexOf(pageId);
+                    if (position >= 0) {
+                        siteIndex.lemmaCount -= siteIndex.pages.getRank(position);
+                    }
+                }
+                siteIndex.pages.removeAll(sortedPageIds);
+            } finally {
+                siteIndex.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeSite(long siteId) {
+        afterCommit(() -> sites.remove(siteId));
+    }
+
+    /**
+     * Изменение видно поиску только после фиксации транзакции, которая его записала.
+     */
+    private void afterCommit(Runnable update) {
+        if (properties.isInMemoryIndex()) {
+            AfterCommit.run(() -> apply(update));
+        }
+    }
+
+    private void apply(Runnable update) {
+        if (!ready) {
+            synchronized (pendingUpdates) {
+                if (failed) {
+                    return;
+                }
+                if (!ready) {
+                    pendingUpdates.add(update);
+                    return;
+                }
+            }
+        }
+        update.run();
+    }
+
+    private static class SiteIndex {
+
+        private final Map<String, PostingList> postings = new HashMap<>();
+
+        /**
+         * Страницы сайта с их длинами в леммах на месте рангов
+         */
+        private final PostingList pages = new PostingList(0);
+
+        private long lemmaCount;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private long countPostings() {
+            long count = 0;
+            for (PostingList postingList : postings.values()) {
+                count += postingList.size();
+            }
+            return count;
+        }
+    }
+}
@@ -7,8 +7,6 @@ import searchengine.model.Index;
 import searchengine.repository.IndexRepository;
 import searchengine.utils.BeanUtils;
 
-import java.util.List;
-
 @Service
 @RequiredArgsConstructor
 public class IndexService {
@@ -24,10 +22,6 @@ public class IndexService {
         return indexRepository.save(index);
     }
 
-    public List<Index> saveAll(List<Index> indexes) {
-        return indexRepository.saveAll(indexes);
-    }
-
     public Index update(Index index) {
         Index oldIndex = findById(index.getId());
         BeanUtils.copyNotNullProperties(index, oldIndex);
@@ -6,11 +6,24 @@ import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.config.SitesList;
 import searchengine.config.SiteConfig;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.config.properties.IndexingProperties;
 import searchengine.dto.statistics.DataResponse;
+import searchengine.dto.statistics.SearchResponse;
 import searchengine.model.*;
+import searchengine.repository.PostingSource;
+import searchengine.repository.SearchIndexRepository;
 import searchengine.utils.LemmasFinder;
+import searchengine.utils.UrlCanonicalizer;
+import searchengine.worker.CrawlContext;
+import searchengine.worker.CrawlExecutors;
+import searchengine.worker.HostPolitenessScheduler;
+import searchengine.worker.IndexingPipeline;
+import searchengine.worker.KnownPages;
+import searchengine.worker.LinkExtractor;
 import searchengine.worker.PageIndexingWorker;
 import searchengine.worker.PagesUrlSummer;
 
@@ -19,6 +32,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,19 +43,44 @@ public class IndexingService {
 
     private final PageService pageService;
 
-    private final LemmaService lemmaService;
-
-    private final RedisLemmaService redisLemmaService;
+    private final MorphologyService morphologyService;
 
     private final SitesList sites;
 
+    private final CrawlerProperties crawlerProperties;
+
+    private final IndexingProperties indexingProperties;
+
+    private final CrawlCheckpointService crawlCheckpointService;
+
+    private final CrawlMetricsService crawlMetricsService;
+
+    private final PageReindexService pageReindexService;
+
+    private final BulkIndexWriter bulkIndexWriter;
+
+    private final PageFetchService pageFetchService;
+
+    private final RobotsService robotsService;
+
+    private final SitemapService sitemapService;
+
     private static boolean isStartIndexing;
 
-    private final IndexService indexService;
+    private final SearchIndexRepository searchIndexRepository;
+
+    private final InMemorySearchIndex inMemorySearchIndex;
 
-    private static final Pattern HTTPS_PATTERN = Pattern.compile("https://[^/]+");
+    private final SearchResultCache searchResultCache;
 
-    private final int processorSize = Runtime.getRuntime().availableProcessors();
+    private final PageScorer pageScorer;
+
+    private static final Pattern HTTPS_PATTERN = Pattern.compile("https?://[^/]+");
+
+    /**
+     * Как часто поток индексации, ожидая обход, проверяет, не остановлена ли индексация.
+     */
+    private static final long STOP_CHECK_INTERVAL_MS = 200;
 
     public void startIndexing() {
 
@@ -49,8 +88,6 @@ public class IndexingService {
             throw new IllegalStateException("Индексция уже запущена");
         }
 
-        redisLemmaService.clearAllCaches();
-
         Thread thread = new Thread(() -> {
 
             long start = System.currentTimeMillis();
@@ -68,6 +105,24 @@ public class IndexingService {
                 newSite.setStatusTime(Instant.now());
                 Site oldSite = siteService.findByUrl(newSite.getUrl());
 
+                if (oldSite != null && canResume(oldSite)) {
+                    oldSite.setStatus(Status.INDEXING);
+                    oldSite.setStatusTime(Instant.now());
+                    oldSite.setLastError(null);
+                    sitesToDb.add(siteService.update(oldSite));
+                    continue;
+                }
+
+                if (oldSite != null && indexingProperties.isIncremental()) {
+                    crawlCheckpointService.clear(oldSite.getId());
+                    oldSite.setName(siteConfig.getName());
+                    oldSite.setStatus(Status.INDEXING);
+                    oldSite.setStatusTime(Instant.now());
+                    oldSite.setLastError(null);
+                    sitesToDb.add(siteService.update(oldSite));
+                    continue;
+                }
+
                 if (oldSite != null) {
                     siteService.deleteById(oldSite.getId());
                 }
@@ -76,48 +131,68 @@ public class IndexingService {
             }
 
 
-            List<PageUrl> rootPageUrl = new ArrayList<>();
-            for (SiteConfig siteConfig : siteConfigList) {
-                rootPageUrl.add(new PageUrl(siteConfig.getUrl()));
-            }
-
-            ForkJoinPool forkJoinPool = new ForkJoinPool(processorSize + 1);
-            List<Future<List<PageUrl>>> pagesUrlSummerFuture = new ArrayList<>();
-
-            for (PageUrl pageUrl : rootPageUrl) {
-                pagesUrlSummerFuture.add(forkJoinPool.submit(new PagesUrlSummer(pageUrl, pageService, siteService)));
-            }
+            CrawlExecutors executors = new CrawlExecutors(crawlerProperties);
+            HostPolitenessScheduler politenessScheduler = new HostPolitenessScheduler(
+                    crawlerProperties.getHostRequestInterval(), crawlerProperties.getMaxConcurrentRequestsPerHost());
+            IndexingPipeline pipeline = new IndexingPipeline(indexingProperties, bulkIndexWriter,
+                    crawlCheckpointService, pageReindexService, new PageIndexingWorker(morphologyService));
+            pipeline.start();
+            CrawlContext crawlContext = new CrawlContext(crawlerProperties, politenessScheduler, executors, pipeline,
+                    crawlCheckpointService, pageFetchService, robotsService, sitemapService);
+
+            List<PagesUrlSummer> crawlers = new ArrayList<>();
+            List<Future<CrawlSummary>> pagesUrlSummerFuture = new ArrayList<>();
+            boolean stopped = false;
+
+            // Поток записи конвейера не демон: без остановки в finally он удержал бы JVM после сбоя или остановки
+            try {
+                for (Site site : sitesToDb) {
+                    KnownPages knownPages = indexingProperties.isIncremental()
+                            ? new KnownPages(pageService.findFingerprints(site), pageService)
+                            : KnownPages.empty();
+                    PagesUrlSummer crawler = new PagesUrlSummer(new PageUrl(site.getUrl()), site, knownPages, crawlContext);
+                    crawlers.add(crawler);
+                    crawlMetricsService.registerSeenUrls(site.getUrl(), crawler.getFrontier().getSeenUrls());
+                    pagesUrlSummerFuture.add(crawler.start());
+                }
 
-            for (Future<List<PageUrl>> pagesUrlSummer : pagesUrlSummerFuture) {
-                while (!pagesUrlSummer.isDone()) {
-                    stopWorkers(sitesToDb, forkJoinPool);
+                for (Future<CrawlSummary> pagesUrlSummer : pagesUrlSummerFuture) {
+                    while (!pagesUrlSummer.isDone()) {
+                        stopped = stopped || stopWorkers(sitesToDb, executors, crawlers, pipeline);
+                        awaitCrawl(pagesUrlSummer);
+                    }
                 }
-            }
 
-            List<Future<List<Lemma>>> tasksPageIndexWorkerFuture = new ArrayList<>();
+                //--------------Остановка могла прийти, когда все обходы уже закончились--------------
+                stopped = stopped || stopWorkers(sitesToDb, executors, crawlers, pipeline);
+                if (stopped) {
+                    return;
+                }
 
-            for (Site site : sitesToDb) {
-                List<Page> pages = pageService.findBySite(site);
+                pipeline.close();
 
-                tasksPageIndexWorkerFuture.add(forkJoinPool.submit(new PageIndexingWorker(new HashSet<>(pages), site, lemmaService, redisLemmaService)));
-            }
-
-            for (Future<List<Lemma>> task : tasksPageIndexWorkerFuture) {
-                while (!task.isDone()) {
-                    stopWorkers(sitesToDb, forkJoinPool);
+                for (SiteConfig siteConfig : siteConfigList) {
+                    Site site = sitesToDb.stream().filter(el -> el.getUrl().equals(siteConfig.getUrl())).findFirst().get();
+                    site.setStatus(Status.INDEXED);
+                    site.setStatusTime(Instant.now());
+                    if (indexingProperties.isIncremental()) {
+                        pageReindexService.deleteMissingPages(site.getId());
+                    }
+                    siteService.update(site);
+                    crawlCheckpointService.clear(site.getId());
                 }
-            }
 
-            for (SiteConfig siteConfig : siteConfigList) {
-                Site site = sitesToDb.stream().filter(el -> el.getUrl().equals(siteConfig.getUrl())).findFirst().get();
-                site.setStatus(Status.INDEXED);
-                site.setStatusTime(Instant.now());
-                siteService.update(site);
+                morphologyService.logCacheStatistics();
+                log.info("Indexing finished {}ms", System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
+                log.error("Indexing failed: {}", e.getMessage(), e);
+                markFailed(sitesToDb, "Ошибка индексации: " + e.getMessage());
+            } finally {
+                pipeline.stop();
+                politenessScheduler.shutdownNow();
+                executors.shutdown();
+                isStartIndexing = false;
             }
-
-            isStartIndexing = false;
-
-            log.info("Indexing finished {}ms", System.currentTimeMillis() - start);
         });
 
         thread.start();
@@ -131,77 +206,66 @@ public class IndexingService {
         }
     }
 
+    /**
+     * Адрес приводится к каноническому виду, как ссылки при обходе, поэтому страница находится
+     * под тем же путём, под которым её сохранил обход, а не записывается второй раз.
+     */
     @SneakyThrows
     public void indexPage(String url) {
         long startTime = System.currentTimeMillis();
 
-        String pageUrl;
-
-        String siteUrl = "";
-
-        Matcher matcher = HTTPS_PATTERN.matcher(url);
-
-        while (matcher.find()) {
-            int start = matcher.start();
-            int end = matcher.end();
-            siteUrl = url.substring(start, end);
+        UrlCanonicalizer canonicalizer = new UrlCanonicalizer(crawlerProperties.getExcludedExtensions(),
+                crawlerProperties.getExcludedUrlParts(), crawlerProperties.getIgnoredQueryParameters(),
+                crawlerProperties.isKeepQueryStrings());
+        String canonicalUrl = canonicalizer.canonicalize(url);
+        if (canonicalUrl == null) {
+            throw new IllegalStateException("Адрес страницы некорректен или исключён из обхода");
         }
 
-        pageUrl = url.replace(siteUrl, "");
-
-        Page page = pageService.findByPath(pageUrl);
-
-        if (page != null) {
-            pageService.delete(page.getId());
-        } else {
-            page = pageService.initPage(url, pageUrl);
-            pageService.save(page);
+        SiteConfig siteConfig = null;
+        String siteUrl = null;
+        for (SiteConfig config : sites.getSiteConfigs()) {
+            String headAddress = headAddress(config.getUrl()).toLowerCase(Locale.ROOT);
+            if (canonicalUrl.startsWith(headAddress + "/")) {
+                siteConfig = config;
+                siteUrl = headAddress;
+                break;
+            }
         }
-
-        String content = page.getContent();
-
-        HashMap<String, Integer> lemmas = LemmasFinder.getLemmasHashMap(content);
-
-        log.info("Starting get LemmasHashMap");
-
-        List<String> lemmasInDb = lemmaService.findAllLemmaValue();
-        if (lemmasInDb == null) {
-            lemmasInDb = new ArrayList<>();
+        if (siteConfig == null) {
+            throw new IllegalStateException("Данная страница находится за пределами сайтов, " +
+                    "указанных в конфигурационном файле");
         }
 
-        List<Lemma> lemmasToSave = new ArrayList<>();
-        List<Index> indexesToSave = new ArrayList<>();
-
-        for (HashMap.Entry<String, Integer> entry : lemmas.entrySet()) {
-            Index index = new Index();
-            index.setPage(page);
-            index.setRank(entry.getValue());
-            Lemma lemma = new Lemma();
-            lemma.setLemma(entry.getKey());
-            lemma.setFrequency(1);
-            lemma.setSite(page.getSite());
-            List<Index> indexes = new ArrayList<>();
-            indexes.add(index);
-            lemma.setIndexes(indexes);
-            index.setLemma(lemma);
-            lemmasToSave.add(lemma);
-            indexesToSave.add(index);
-
-            lemmasInDb.add(entry.getKey());
+        // Главную страницу обход хранит под адресом сайта, остальные - под путём канонического адреса
+        String path = canonicalUrl.length() == siteUrl.length() + 1
+                ? siteConfig.getUrl()
+                : new LinkExtractor(crawlerProperties, siteUrl).pathOf(canonicalUrl);
+
+        Page page = pageService.initPage(canonicalUrl, siteConfig, path);
+        Page oldPage = pageService.findBySiteAndPath(page.getSite(), page.getPath());
+        if (oldPage != null) {
+            page.setId(oldPage.getId());
         }
 
-        lemmaService.saveAll(lemmasToSave);
-        indexService.saveAll(indexesToSave);
+        // Частоты и строки индекса меняются только на разницу между прежней и новой версией страницы
+        Map<String, Integer> lemmas = LemmasFinder.getLemmasHashMap(page.getContent(), morphologyService);
+        pageReindexService.reindex(page, lemmas);
 
         log.info("indexing finished {}ms", System.currentTimeMillis() - startTime);
     }
 
+    /**
+     * Леммы и списки страниц берутся из индекса в памяти, если он включён и построен, иначе из базы.
+     * Из базы списки страниц читаются курсором, поэтому поиск выполняется в транзакции.
+     */
     @SneakyThrows
-    public List<DataResponse> search(String query, String site, Integer offset, Integer limit) {
-        if (offset == null) {
+    @Transactional(readOnly = true)
+    public SearchResponse search(String query, String site, Integer offset, Integer limit) {
+        if (offset == null || offset < 0) {
             offset = 0;
         }
-        if (limit == null) {
+        if (limit == null || limit < 0) {
             limit = 20;
         }
 
@@ -209,126 +273,133 @@ public class IndexingService {
             throw new IllegalStateException("Задан пустой поисковый запрос!");
         }
 
-        HashMap<String, Integer> queryLemmas = LemmasFinder.getLemmasHashMap(query);
-        List<Lemma> lemmasInDb = new ArrayList<>();
-        List<Page> allPages = pageService.findAll();
-        int totalPagesSize = allPages.size();
-        List<String> sitesUrl = new ArrayList<>();
+        HashMap<String, Integer> queryLemmas = LemmasFinder.getLemmasHashMap(query, morphologyService);
+        List<Site> sitesToSearch = new ArrayList<>();
 
         if (site == null) {
-            sitesUrl.addAll(siteService.findAll().stream().map(siteElement -> {
-                if (siteElement.getStatus().equals(Status.INDEXED)) {
-                    return siteElement.getUrl();
-                }
-                return null;
-            }).filter(Objects::nonNull).toList());
+            sitesToSearch.addAll(siteService.findAll().stream().filter(this::isSearchable).toList());
         } else {
-            sitesUrl.add(site);
+            Site siteItem = siteService.findByUrl(site);
+            if (siteItem == null || !isSearchable(siteItem)) {
+                throw new IllegalStateException("Выбранный сайт не проиндексирован!");
+            }
+            sitesToSearch.add(siteItem);
         }
 
-        if (sitesUrl.isEmpty()) {
+        if (sitesToSearch.isEmpty()) {
             throw new IllegalStateException("Выбранные сайты не проиндексированны!");
         }
 
-        if (sitesUrl.size() == 1) {
-            Site siteItem = siteService.findByUrl(sitesUrl.get(0));
-            if(!siteItem.getStatus().equals(Status.INDEXED)) {
-                throw new IllegalStateException("Выбранный сайт не проиндексирован!");
-            }
+        List<Long> siteIds = sitesToSearch.stream().map(Site::getId).toList();
+
+        String cacheKey = searchResultCache.key(queryLemmas.keySet(), site, offset, limit, siteIds);
+        SearchResponse cached = searchResultCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
         }
+        long start = System.nanoTime();
+        SearchResponse response = findResults(queryLemmas, siteIds, offset, limit);
+        searchResultCache.put(cacheKey, response, System.nanoTime() - start);
+        return response;
+    }
 
-        for (String key : queryLemmas.keySet()) {
-            for (String siteUrl : sitesUrl) {
-                Lemma lemma = lemmaService.findByLemma(key, siteUrl);
-                if (lemma != null && (checkPercent(80, totalPagesSize, lemma.getFrequency()) || queryLemmas.size() == 1)) {
-                    lemmasInDb.add(lemma);
-                }
+    private SearchResponse findResults(Map<String, Integer> queryLemmas, List<Long> siteIds, int offset, int limit) {
+        List<LemmaFrequency> lemmasInDb = new ArrayList<>();
+        PostingSource postingSource = inMemorySearchIndex.isReady() ? inMemorySearchIndex : searchIndexRepository;
+        long totalPagesSize = postingSource.countPages();
+
+        for (LemmaFrequency lemma : postingSource.findLemmas(queryLemmas.keySet(), siteIds)) {
+            if (checkPercent(80, totalPagesSize, lemma.getFrequency()) || queryLemmas.size() == 1) {
+                lemmasInDb.add(lemma);
             }
         }
 
         if (lemmasInDb.isEmpty()) {
-            return new ArrayList<>();
+            return new SearchResponse(true, 0, new ArrayList<>());
         }
 
-        lemmasInDb.sort(Comparator.comparing(Lemma::getFrequency));
-
-        List<Long> firstLemmaIndexIds = new ArrayList<>();
-        lemmasInDb.get(0).getIndexes().forEach(index -> firstLemmaIndexIds.add(index.getId()));
-        List<Page> pagesResult = new ArrayList<>(pageService.findAllByIndexes(firstLemmaIndexIds));
-
-        for (Lemma lemma : lemmasInDb) {
-            List<Page> tempPages = new ArrayList<>();
-            List<Long> indexIds = new ArrayList<>();
-            if (lemma != lemmasInDb.get(0)) {
-                lemma.getIndexes().forEach(index -> indexIds.add(index.getId()));
-                List<Page> lemmasPages = new ArrayList<>(pageService.findAllByIndexes(indexIds));
-                for (Page page : lemmasPages) {
-                    if (pagesResult.contains(page)) {
-                        tempPages.add(page);
-                    }
+        // Страницы сайта должны содержать все найденные на нём леммы: списки пересекаются начиная с самой редкой.
+        // Ранги каждой леммы затем выравниваются по итоговым кандидатам, и оценка считается по массивам
+        Map<Long, List<LemmaFrequency>> lemmasBySite = lemmasInDb.stream()
+                .collect(Collectors.groupingBy(LemmaFrequency::getSiteId));
+        Map<Long, SiteStatistics> statisticsBySite = postingSource.findSiteStatistics(lemmasBySite.keySet());
+
+        // В куче держатся только offset + limit лучших страниц, наверху худшая из них;
+        // при равной релевантности выше страница с меньшим id
+        int topSize = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        Comparator<LemmaPageRank> worstFirst = Comparator.comparingDouble(LemmaPageRank::getRelevance)
+                .thenComparing(LemmaPageRank::getPageId, Comparator.reverseOrder());
+        PriorityQueue<LemmaPageRank> topPages = new PriorityQueue<>(worstFirst);
+        int totalCount = 0;
+
+        for (Map.Entry<Long, List<LemmaFrequency>> entry : lemmasBySite.entrySet()) {
+            long siteId = entry.getKey();
+            List<LemmaFrequency> siteLemmas = entry.getValue();
+            siteLemmas.sort(Comparator.comparingInt(LemmaFrequency::getFrequency));
+            List<PostingList> lemmaPostings = new ArrayList<>(siteLemmas.size());
+            PostingList pages = null;
+            for (LemmaFrequency lemma : siteLemmas) {
+                PostingList postings = pages == null
+                        ? postingSource.findPostings(lemma)
+                        : postingSource.findPostings(lemma, pages);
+                lemmaPostings.add(postings);
+                pages = pages == null ? postings : pages.retainAll(postings);
+                if (pages.isEmpty()) {
+                    break;
                 }
-                pagesResult = new ArrayList<>(tempPages);
             }
-        }
+            if (pages == null || pages.isEmpty()) {
+                continue;
+            }
 
-        List<LemmaPageRank> lemmasPageRanks = new ArrayList<>();
-
-        for (Lemma lemma : lemmasInDb) {
-            for (Index index : lemma.getIndexes()) {
-                if (pagesResult.contains(index.getPage())) {
-                    Page page = index.getPage();
-                    boolean pageExists = false;
-
-                    for (LemmaPageRank lemmaPageRank : lemmasPageRanks) {
-                        if (lemmaPageRank.getPage().equals(page)) {
-                            // Если сущность с этой страницей уже есть, добавляем новую лему в Map
-                            lemmaPageRank.getLemmaRank().put(lemma, index.getRank());
-                            pageExists = true;
-                            break; // Останавливаем поиск, т.к. сущность найдена
-                        }
-                    }
+            int[] pageLengths = postingSource.findPageLengths(siteId, pages);
+            SiteStatistics statistics = statisticsBySite.getOrDefault(siteId, SiteStatistics.EMPTY);
+            double[] scores = new double[pages.size()];
+            for (int i = 0; i < siteLemmas.size(); i++) {
+                pageScorer.accumulate(scores, lemmaPostings.get(i).retainAll(pages), pageLengths,
+                        siteLemmas.get(i).getFrequency(), statistics);
+            }
 
-                    // Если сущность с этой страницей не найдена, создаем новую
-                    if (!pageExists) {
-                        HashMap<Lemma, Integer> lemmaRanks = new HashMap<>();
-                        lemmaRanks.put(lemma, index.getRank());
-                        lemmasPageRanks.add(new LemmaPageRank(lemmaRanks, page));
-                    }
+            totalCount += pages.size();
+            for (int i = 0; i < pages.size(); i++) {
+                long pageId = pages.getPageId(i);
+                if (topPages.size() < topSize) {
+                    topPages.add(new LemmaPageRank(pageId, siteId, scores[i]));
+                } else if (topSize > 0 && isBetter(scores[i], pageId, topPages.peek())) {
+                    topPages.poll();
+                    topPages.add(new LemmaPageRank(pageId, siteId, scores[i]));
                 }
             }
         }
 
-        lemmasPageRanks.forEach(LemmaPageRank::calculateRelevance);
-        Float max = 0F;
-        for (LemmaPageRank lemmaPageRank : lemmasPageRanks) {
-            if (lemmaPageRank.getThisRelevance() > max) {
-                max = lemmaPageRank.getThisRelevance();
-            }
-        }
+        List<LemmaPageRank> lemmasPageRanks = new ArrayList<>(topPages);
+        lemmasPageRanks.sort(worstFirst.reversed());
 
-        for (LemmaPageRank lemmaPageRank : lemmasPageRanks) {
-            lemmaPageRank.setTotalRelevance(max);
-            lemmaPageRank.calculateTotalRelevance();
-        }
+        // Страницы целиком загружаются только для выдаваемой части результата
+        int from = Math.min(offset, lemmasPageRanks.size());
+        List<LemmaPageRank> resultPage = lemmasPageRanks.subList(from, lemmasPageRanks.size());
+        Map<Long, Page> pagesById = new HashMap<>();
+        pageService.findAllById(resultPage.stream().map(LemmaPageRank::getPageId).toList())
+                .forEach(page -> pagesById.put(page.getId(), page));
 
-        lemmasPageRanks.sort(Comparator.comparing(LemmaPageRank::getTotalRelevance).reversed());
         List<DataResponse> dataResponses = new ArrayList<>();
 
-        for (int i = offset; i < lemmasPageRanks.size(); i++) {
-            if (i >= limit) {
-                break;
+        for (LemmaPageRank lemmaPageRank : resultPage) {
+            Page page = pagesById.get(lemmaPageRank.getPageId());
+            if (page == null) {
+                continue;
             }
             DataResponse dataResponse = new DataResponse();
 
-            dataResponse.setUri(lemmasPageRanks.get(i).getPage().getPath());
-            dataResponse.setRelevance(lemmasPageRanks.get(i).getTotalRelevance());
-            Site siteOnPage = lemmasPageRanks.get(i).getPage().getSite();
+            dataResponse.setUri(page.getPath());
+            dataResponse.setRelevance((float) lemmaPageRank.getRelevance());
+            Site siteOnPage = page.getSite();
             dataResponse.setSite(siteOnPage.getUrl());
             dataResponse.setSiteName(siteOnPage.getName());
-            String pageContent = lemmasPageRanks.get(i).getPage().getContent();
+            String pageContent = page.getContent();
             Document document = Jsoup.parse(pageContent);
             dataResponse.setTitle(document.title());
-            List<String> lemmaList = new ArrayList<>(lemmasPageRanks.get(i).getLemmaRank().keySet().stream().map(Lemma::getLemma).toList());
+            List<String> lemmaList = lemmasBySite.get(lemmaPageRank.getSiteId()).stream().map(LemmaFrequency::getLemma).toList();
             pageContent = LemmasFinder.extractFragmentsWithHighlight(pageContent, lemmaList);
 
             if (pageContent.length() > 240) {
@@ -345,25 +416,78 @@ public class IndexingService {
             dataResponses.add(dataResponse);
         }
 
-        return dataResponses;
+        return new SearchResponse(true, totalCount, dataResponses);
 
     }
 
-    private boolean checkPercent(int percent, int sizePages, int frequency) {
-        int result = frequency * 100 / sizePages;
+    /**
+     * Сайт, обход которого был прерван остановкой или перезапуском, индексируется с места остановки.
+     */
+    private boolean canResume(Site site) {
+        return indexingProperties.isResume()
+                && site.getStatus() != Status.INDEXED
+                && crawlCheckpointService.hasUnfinished(site.getId());
+    }
+
+    /**
+     * Страницы сайта пишутся в базу по мере обхода, поэтому искать можно и по сайту, который ещё индексируется.
+     */
+    private boolean isSearchable(Site site) {
+        return site.getStatus() == Status.INDEXED || site.getStatus() == Status.INDEXING;
+    }
+
+    private boolean isBetter(double relevance, long pageId, LemmaPageRank worst) {
+        return relevance > worst.getRelevance() || (relevance == worst.getRelevance() && pageId < worst.getPageId());
+    }
+
+    private boolean checkPercent(int percent, long sizePages, int frequency) {
+        long result = frequency * 100L / sizePages;
         return percent >= result;
     }
 
-    private void stopWorkers(List<Site> sitesToDb, ForkJoinPool forkJoinPool) {
-        if (!isStartIndexing) {
-            for (Site site : sitesToDb) {
-                site.setLastError("Индексация остановлена пользователем");
-                site.setStatus(Status.FAILED);
-                site.setStatusTime(Instant.now());
-                siteService.update(site);
-            }
-            forkJoinPool.shutdownNow();
-            log.info("Индексация остановлена пользователем");
+    private static String headAddress(String url) {
+        Matcher matcher = HTTPS_PATTERN.matcher(url);
+        return matcher.find() ? url.substring(matcher.start(), matcher.end()) : url;
+    }
+
+    /**
+     * Ждёт завершения обхода не дольше интервала проверки остановки, не занимая процессор.
+     */
+    private void awaitCrawl(Future<CrawlSummary> crawl) {
+        try {
+            crawl.get(STOP_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            // Обход ещё идёт или остановлен: решает вызывающий цикл
+        } catch (ExecutionException e) {
+            log.error("Crawl failed: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isStartIndexing = false;
+        }
+    }
+
+    /**
+     * @return true, если индексация остановлена пользователем и обходы прерваны
+     */
+    private boolean stopWorkers(List<Site> sitesToDb, CrawlExecutors executors, List<PagesUrlSummer> crawlers,
+                                IndexingPipeline pipeline) {
+        if (isStartIndexing) {
+            return false;
+        }
+        crawlers.forEach(PagesUrlSummer::stop);
+        pipeline.stop();
+        markFailed(sitesToDb, "Индексация остановлена пользователем");
+        executors.shutdownNow();
+        log.info("Индексация остановлена пользователем");
+        return true;
+    }
+
+    private void markFailed(List<Site> sitesToDb, String error) {
+        for (Site site : sitesToDb) {
+            site.setLastError(error);
+            site.setStatus(Status.FAILED);
+            site.setStatusTime(Instant.now());
+            siteService.update(site);
         }
     }
 }
\ No newline at end of file
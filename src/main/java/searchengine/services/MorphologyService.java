@@ -0,0 +1,54 @@
+package searchengine.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+import org.springframework.stereotype.Service;
+import searchengine.config.properties.MorphologyProperties;
+import searchengine.model.Language;
+import searchengine.model.WordForms;
+import searchengine.utils.LruCache;
+
+import java.util.List;
+
+@Service
+@Slf4j
+public class MorphologyService {
+
+    private final LuceneMorphology russianMorphology;
+
+    private final LuceneMorphology englishMorphology;
+
+    private final LruCache<String, WordForms> wordFormsCache;
+
+    public MorphologyService(RussianLuceneMorphology russianMorphology,
+                             EnglishLuceneMorphology englishMorphology,
+                             MorphologyProperties properties) {
+        this.russianMorphology = russianMorphology;
+        this.englishMorphology = englishMorphology;
+        this.wordFormsCache = new LruCache<>(properties.getCacheSize(), properties.getCacheConcurrency());
+    }
+
+    /**
+     * Слово должно быть в нижнем регистре и целиком состоять из букв алфавита языка.
+     */
+    public WordForms getWordForms(String word, Language language) {
+        return wordFormsCache.computeIfAbsent(word, key -> {
+            LuceneMorphology morphology = language == Language.RUSSIAN ? russianMorphology : englishMorphology;
+            List<String> normalForms = morphology.getNormalForms(key);
+            List<String> morphInfo = morphology.getMorphInfo(key);
+            return new WordForms(List.copyOf(normalForms), morphInfo.get(0));
+        });
+    }
+
+    public LruCache<String, WordForms> getWordFormsCache() {
+        return wordFormsCache;
+    }
+
+    public void logCacheStatistics() {
+        log.info("Word forms cache: size {}, hits {}, misses {}, evictions {}, hit rate {}",
+                wordFormsCache.size(), wordFormsCache.getHitCount(), wordFormsCache.getMissCount(),
+                wordFormsCache.getEvictionCount(), String.format("%.3f", wordFormsCache.getHitRate()));
+    }
+}
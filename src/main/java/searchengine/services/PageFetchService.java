@@ -0,0 +1,229 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.model.FetchedPage;
+import searchengine.model.PageFingerprint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Загрузка страниц через один общий HTTP-клиент: соединения к хосту переиспользуются
+ * (keep-alive, HTTP/2, если сервер его поддерживает), ответы приходят сжатыми.
+ * Не-HTML страницы и слишком большие ответы обрываются, не дочитывая тело.
+ * Тело должно прийти целиком за время чтения, иначе поток ответа закрывается по таймеру:
+ * таймаут запроса в HttpClient ограничивает только ожидание заголовков.
+ */
+@Service
+@Slf4j
+public class PageFetchService {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpClient httpClient;
+
+    private final CrawlerProperties properties;
+
+    private final long maxBodySize;
+
+    private final ScheduledExecutorService bodyDeadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "page-fetch-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PageFetchService(CrawlerProperties properties) {
+        this.properties = properties;
+        this.maxBodySize = properties.getMaxBodySize().toBytes();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(properties.getConnectTimeout())
+                .build();
+    }
+
+    /**
+     * @param known сохранённая версия страницы; если есть, запрос делается условным
+     * @throws IOException если сервер недоступен или соединение оборвалось
+     */
+    public FetchedPage fetch(String url, PageFingerprint known) throws IOException {
+        return fetch(url, known, true);
+    }
+
+    /**
+     * Загружает служебный файл сайта (robots.txt, sitemap.xml) любого типа содержимого.
+     */
+    public FetchedPage fetchResource(String url) throws IOException {
+        return fetch(url, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bodyDeadlines.shutdownNow();
+    }
+
+    public Document parse(FetchedPage page) throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(page.getBody()), page.getCharset(), page.getUri().toString());
+    }
+
+    private FetchedPage fetch(String url, PageFingerprint known, boolean htmlOnly) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(properties.getReadTimeout())
+                .header("User-Agent", properties.getUserAgent())
+                .header("Referer", "http://www.google.com")
+                .header("Accept", htmlOnly ? "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1" : "*/*")
+                .header("Accept-Encoding", "gzip, deflate");
+        if (known != null && known.getEtag() != null) {
+            request.header("If-None-Match", known.getEtag());
+        }
+        if (known != null && known.getLastModified() != null) {
+            request.header("If-Modified-Since", known.getLastModified());
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Загрузка прервана", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Некорректный адрес " + url, e);
+        }
+
+        InputStream body = response.body();
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = bodyDeadlines.schedule(() -> {
+            expired.set(true);
+            closeQuietly(body);
+        }, properties.getReadTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        try (body) {
+            return read(response, body, htmlOnly);
+        } catch (IOException e) {
+            if (expired.get()) {
+                throw new HttpTimeoutException("Тело ответа не получено за " + properties.getReadTimeout().toSeconds() + " с");
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    private FetchedPage read(HttpResponse<InputStream> response, InputStream body, boolean htmlOnly) throws IOException {
+        HttpHeaders headers = response.headers();
+        int status = response.statusCode();
+        String etag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+
+        if (status == 304) {
+            return new FetchedPage(status, response.uri(), new byte[0], null, etag, lastModified, null);
+        }
+        if (status < 200 || status >= 300) {
+            return rejected(response, "HTTP " + status);
+        }
+
+        String contentType = headers.firstValue("Content-Type").orElse(null);
+        if (htmlOnly && contentType != null && !isHtml(contentType)) {
+            return rejected(response, "content type " + contentType);
+        }
+        long contentLength = headers.firstValueAsLong("Content-Length").orElse(-1);
+        if (contentLength > maxBodySize) {
+            return rejected(response, "body of " + contentLength + " bytes");
+        }
+
+        byte[] content = readLimited(decode(body, headers.firstValue("Content-Encoding").orElse("")));
+        if (content == null) {
+            return rejected(response, "body larger than " + maxBodySize + " bytes");
+        }
+        if (htmlOnly && contentType == null && !looksLikeHtml(content)) {
+            return rejected(response, "body is not HTML");
+        }
+        return new FetchedPage(status, response.uri(), content, charset(contentType), etag, lastModified, null);
+    }
+
+    private static FetchedPage rejected(HttpResponse<InputStream> response, String reason) {
+        return new FetchedPage(response.statusCode(), response.uri(), new byte[0], null, null, null, reason);
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("Failed to close response body: {}", e.getMessage());
+        }
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, BUFFER_SIZE);
+            case "deflate" -> new InflaterInputStream(body);
+            default -> body;
+        };
+    }
+
+    /**
+     * @return тело ответа или null, если оно больше допустимого; остаток тела не читается
+     */
+    private byte[] readLimited(InputStream body) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            if (content.size() + read > maxBodySize) {
+                return null;
+            }
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    private static boolean isHtml(String contentType) {
+        String mimeType = contentType.toLowerCase(Locale.ROOT);
+        return mimeType.startsWith("text/html") || mimeType.startsWith("application/xhtml+xml");
+    }
+
+    private static boolean looksLikeHtml(byte[] content) {
+        for (byte b : content) {
+            if (!Character.isWhitespace(b)) {
+                return b == '<';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Кодировка из заголовка Content-Type; null - Jsoup определит её по meta-тегу.
+     */
+    private static String charset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String[] pair = parameter.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+                return pair[1].trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,212 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.Page;
+import searchengine.repository.LemmaRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Инкрементальная переиндексация: страница записывается поверх сохранённой,
+ * а частоты лемм, строки индекса и сводка сайта меняются только на разницу между старым и новым набором лемм.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PageReindexService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LemmaRepository lemmaRepository;
+
+    private final InMemorySearchIndex inMemorySearchIndex;
+
+    private final SearchResultCache searchResultCache;
+
+    /**
+     * Записывает новую или изменившуюся страницу вместе с её леммами.
+     * Новая страница, путь которой уже записан, пишется поверх сохранённой.
+     *
+     * @param ranks ранг каждой леммы на странице
+     */
+    @Transactional
+    public void reindex(Page page, Map<String, Integer> ranks) {
+        Long siteId = page.getSite().getId();
+        Map<String, IndexedLemma> oldLemmas;
+        page.setLemmaCount(ranks.values().stream().mapToInt(Integer::intValue).sum());
+        boolean isNew = page.getId() == null && insertPage(siteId, page);
+
+        if (isNew) {
+            oldLemmas = Map.of();
+        } else {
+            if (page.getId() == null) {
+                page.setId(jdbcTemplate.queryForObject("SELECT id FROM pages WHERE site_id = ? AND path = ?",
+                        Long.class, siteId, page.getPath()));
+            }
+            jdbcTemplate.update("UPDATE pages SET code = ?, content = ?, etag = ?, last_modified = ?, content_hash = ?, lemma_count = ? WHERE id = ?",
+                    page.getCode(), page.getContent(), page.getEtag(), page.getLastModified(), page.getContentHash(),
+                    page.getLemmaCount(), page.getId());
+            oldLemmas = findPageLemmas(siteId, page.getId());
+        }
+        int oldLemmaCount = oldLemmas.values().stream().mapToInt(old -> old.rank).sum();
+
+        List<String> added = new ArrayList<>();
+        List<Long> removedIds = new ArrayList<>();
+        List<String> removedLemmas = new ArrayList<>();
+        List<Long> rerankedIds = new ArrayList<>();
+        List<Integer> reranked = new ArrayList<>();
+
+        for (Map.Entry<String, Integer> entry : ranks.entrySet()) {
+            IndexedLemma old = oldLemmas.get(entry.getKey());
+            if (old == null) {
+                added.add(entry.getKey());
+            } else if (old.rank != entry.getValue()) {
+                rerankedIds.add(old.lemmaId);
+                reranked.add(entry.getValue());
+            }
+        }
+        oldLemmas.forEach((lemma, old) -> {
+            if (!ranks.containsKey(lemma)) {
+                removedIds.add(old.lemmaId);
+                removedLemmas.add(lemma);
+            }
+        });
+
+        if (!added.isEmpty()) {
+            Map<String, Integer> increments = new HashMap<>(added.size() * 2);
+            added.forEach(lemma -> increments.put(lemma, 1));
+            Map<String, Long> lemmaIds = lemmaRepository.upsertFrequencies(siteId, increments);
+            Long[] ids = new Long[added.size()];
+            Integer[] addedRanks = new Integer[added.size()];
+            for (int i = 0; i < added.size(); i++) {
+                ids[i] = lemmaIds.get(added.get(i));
+                addedRanks[i] = ranks.get(added.get(i));
+            }
+            jdbcTemplate.update("INSERT INTO indexes (site_id, page_id, lemma_id, rank) SELECT ?, ?, unnest(?::bigint[]), unnest(?::int[])",
+                    siteId, page.getId(), ids, addedRanks);
+        }
+        if (!removedIds.isEmpty()) {
+            Long[] ids = removedIds.toArray(new Long[0]);
+            jdbcTemplate.update("DELETE FROM indexes WHERE site_id = ? AND page_id = ? AND lemma_id = ANY(?)", siteId, page.getId(), ids);
+            // Леммы с нулевой частотой не удаляются: их идентификаторы может держать запущенная индексация.
+            // Их убирает deleteMissingPages по окончании обхода, а поиск и статистика их не видят
+            jdbcTemplate.update("UPDATE lemmas SET frequency = frequency - 1 WHERE site_id = ? AND id = ANY(?)", siteId, ids);
+        }
+        if (!rerankedIds.isEmpty()) {
+            jdbcTemplate.update("UPDATE indexes SET rank = v.rank " +
+                            "FROM (SELECT unnest(?::bigint[]) AS lemma_id, unnest(?::int[]) AS rank) v " +
+                            "WHERE indexes.site_id = ? AND indexes.page_id = ? AND indexes.lemma_id = v.lemma_id",
+                    rerankedIds.toArray(new Long[0]), reranked.toArray(new Integer[0]), siteId, page.getId());
+        }
+        addSiteStatistics(siteId, isNew ? 1 : 0, page.getLemmaCount() - oldLemmaCount);
+        inMemorySearchIndex.putPage(siteId, page.getId(), ranks, removedLemmas);
+        searchResultCache.invalidate(List.of(siteId));
+    }
+
+    /**
+     * @return false, если страница с таким путём уже есть; тогда id не заполняется
+     */
+    private boolean insertPage(Long siteId, Page page) {
+        List<Long> ids = jdbcTemplate.queryForList("INSERT INTO pages (site_id, path, code, content, etag, last_modified, content_hash, lemma_count) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (site_id, path) DO NOTHING RETURNING id", Long.class,
+                siteId, page.getPath(), page.getCode(), page.getContent(),
+                page.getEtag(), page.getLastModified(), page.getContentHash(), page.getLemmaCount());
+        if (ids.isEmpty()) {
+            return false;
+        }
+        page.setId(ids.get(0));
+        return true;
+    }
+
+    /**
+     * Для неизменившихся страниц обновляет только валидаторы, если сервер выдал новые.
+     */
+    public void updateValidators(List<Page> pages) {
+        jdbcTemplate.batchUpdate("UPDATE pages SET etag = ?, last_modified = ? WHERE id = ? " +
+                        "AND (etag IS DISTINCT FROM ? OR last_modified IS DISTINCT FROM ?)",
+                pages, BATCH_SIZE, (ps, page) -> {
+                    ps.setString(1, page.getEtag());
+                    ps.setString(2, page.getLastModified());
+                    ps.setLong(3, page.getId());
+                    ps.setString(4, page.getEtag());
+                    ps.setString(5, page.getLastModified());
+                });
+    }
+
+    /**
+     * Удаляет страницы, которые не встретились при завершённом обходе сайта или удалены на нём самом,
+     * и уменьшает частоты их лемм и сводку сайта. Страница, запись или обработка которой сорвалась,
+     * остаётся в очереди обхода не пройденной и не удаляется: одна временная ошибка не должна стирать её из индекса. Вызывается после закрытия конвейера,
+     * поэтому заодно удаляются все леммы сайта с нулевой частотой.
+     *
+     * @return сколько страниц удалено
+     */
+    @Transactional
+    public int deleteMissingPages(Long siteId) {
+        String missingPages = "SELECT p.id FROM pages p WHERE p.site_id = ? AND NOT EXISTS (" +
+                "SELECT 1 FROM crawl_frontier f WHERE f.site_id = p.site_id AND f.path = p.path AND f.status <> 'REMOVED')";
+
+        jdbcTemplate.update("UPDATE lemmas SET frequency = lemmas.frequency - c.pages " +
+                "FROM (SELECT i.lemma_id, count(*) AS pages FROM indexes i WHERE i.site_id = ? AND i.page_id IN (" + missingPages + ") " +
+                "GROUP BY i.lemma_id) c WHERE lemmas.site_id = ? AND lemmas.id = c.lemma_id", siteId, siteId, siteId);
+        jdbcTemplate.update("DELETE FROM indexes WHERE site_id = ? AND page_id IN (" + missingPages + ")", siteId, siteId);
+        List<Long> deletedIds = new ArrayList<>();
+        long[] deletedLemmaCount = {0};
+        jdbcTemplate.query("DELETE FROM pages WHERE site_id = ? AND id IN (" + missingPages + ") RETURNING id, lemma_count",
+                (RowCallbackHandler) rs -> {
+                    deletedIds.add(rs.getLong(1));
+                    deletedLemmaCount[0] += rs.getInt(2);
+                }, siteId, siteId);
+        int deleted = deletedIds.size();
+        inMemorySearchIndex.removePages(siteId, deletedIds);
+        if (deleted > 0) {
+            addSiteStatistics(siteId, -deleted, -deletedLemmaCount[0]);
+            searchResultCache.invalidate(List.of(siteId));
+        }
+        jdbcTemplate.update("DELETE FROM lemmas WHERE site_id = ? AND frequency <= 0", siteId);
+
+        if (deleted > 0) {
+            log.info("Removed {} pages of site {} that are no longer reachable", deleted, siteId);
+        }
+        return deleted;
+    }
+
+    private void addSiteStatistics(Long siteId, long pages, long lemmaCount) {
+        if (pages == 0 && lemmaCount == 0) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO site_statistics (site_id, pages, lemma_count) VALUES (?, ?, ?) " +
+                        "ON CONFLICT (site_id) DO UPDATE SET pages = site_statistics.pages + excluded.pages, " +
+                        "lemma_count = site_statistics.lemma_count + excluded.lemma_count",
+                siteId, pages, lemmaCount);
+    }
+
+    private Map<String, IndexedLemma> findPageLemmas(Long siteId, Long pageId) {
+        Map<String, IndexedLemma> lemmas = new HashMap<>();
+        jdbcTemplate.query("SELECT l.lemma, i.lemma_id, i.rank FROM indexes i " +
+                        "JOIN lemmas l ON l.site_id = i.site_id AND l.id = i.lemma_id WHERE i.site_id = ? AND i.page_id = ?",
+                (RowCallbackHandler) rs -> lemmas.put(rs.getString("lemma"),
+                        new IndexedLemma(rs.getLong("lemma_id"), rs.getInt("rank"))), siteId, pageId);
+        return lemmas;
+    }
+
+    private static class IndexedLemma {
+        private final long lemmaId;
+        private final int rank;
+
+        private IndexedLemma(long lemmaId, int rank) {
+            this.lemmaId = lemmaId;
+            this.rank = rank;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package searchengine.services;
+
+import searchengine.model.PostingList;
+import searchengine.model.SiteStatistics;
+
+/**
+ * Оценка страниц-кандидатов сайта по леммам запроса. Оценка страницы складывается из вкладов лемм
+ * и не зависит от остальных кандидатов, поэтому выдачу можно отбирать кучей лучших без второго прохода.
+ */
+public interface PageScorer {
+
+    /**
+     * Прибавляет к оценкам кандидатов вклад одной леммы.
+     *
+     * @param scores            оценки кандидатов по порядку их id
+     * @param postings          ранги леммы на тех же страницах и в том же порядке
+     * @param pageLengths       длины тех же страниц в леммах
+     * @param documentFrequency на скольких страницах сайта встречается лемма
+     */
+    void accumulate(double[] scores, PostingList postings, int[] pageLengths, int documentFrequency,
+                    SiteStatistics statistics);
+}
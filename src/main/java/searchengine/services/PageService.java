@@ -3,15 +3,17 @@ package searchengine.services;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Service;
-import searchengine.config.SitesList;
+import searchengine.config.SiteConfig;
+import searchengine.model.FetchedPage;
 import searchengine.model.Page;
+import searchengine.model.PageFingerprint;
 import searchengine.model.Site;
 import searchengine.model.Status;
 import searchengine.repository.PageRepository;
 import searchengine.utils.BeanUtils;
+import searchengine.utils.ContentHash;
 
 import java.text.MessageFormat;
 import java.time.Instant;
@@ -25,7 +27,7 @@ public class PageService {
 
     private final SiteService siteService;
 
-    private final SitesList sitesList;
+    private final PageFetchService pageFetchService;
 
     public List<Page> findAll() {
         return repository.findAll();
@@ -39,12 +41,24 @@ public class PageService {
         return repository.findByPath(path).orElse(null);
     }
 
+    public Page findBySiteAndPath(Site site, String path) {
+        return repository.findBySiteAndPath(site, path).orElse(null);
+    }
+
     public List<Page> findBySite(Site site) {
         return repository.findBySite(site);
     }
 
-    public List<Page> findAllByIndexes(List<Long> indexIds) {
-        return repository.findByIndexIds(indexIds);
+    public List<PageFingerprint> findFingerprints(Site site) {
+        return repository.findFingerprintsBySite(site);
+    }
+
+    public String findContentById(Long id) {
+        return repository.findContentById(id).orElse(null);
+    }
+
+    public List<Page> findAllById(List<Long> ids) {
+        return repository.findAllById(ids);
     }
 
     public Page save(Page page) {
@@ -67,37 +81,40 @@ public class PageService {
     }
 
 
+    /**
+     * Загружает страницу сайта для переиндексации; сайт заводится, если его ещё нет в базе.
+     *
+     * @param url  канонический адрес страницы
+     * @param path путь, под которым страница хранится в pages.path
+     */
     @SneakyThrows
-    public Page initPage(String url, String pageUrl) {
-        String siteAddress = url.replace(pageUrl, "");
+    public Page initPage(String url, SiteConfig siteConfig, String path) {
         Page newPage = new Page();
 
-        Document doc = Jsoup.connect(url)
-                .userAgent("HeliontSearchBot/1.0")
-                .referrer("http://www.google.com")
-                .timeout(100000)
-                .get();
-
-        Site site = siteService.findByUrl(siteAddress);
-
-        if (sitesList.findBySiteUrl(siteAddress) == null) {
-            throw new IllegalStateException("Данная страница находится за пределами сайтов, " +
-                    "указанных в конфигурационном файле");
+        FetchedPage fetchedPage = pageFetchService.fetch(url, null);
+        if (!fetchedPage.isAccepted()) {
+            throw new IllegalStateException("Страница не может быть проиндексирована: " + fetchedPage.getRejectReason());
         }
+        Document doc = pageFetchService.parse(fetchedPage);
+
+        Site site = siteService.findByUrl(siteConfig.getUrl());
 
         if (site == null) {
             site = new Site();
-            site.setUrl(siteAddress);
+            site.setUrl(siteConfig.getUrl());
             site.setStatus(Status.INDEXED);
             site.setStatusTime(Instant.now());
-            site.setName(sitesList.findBySiteUrl(siteAddress).getName());
-            siteService.save(site);
+            site.setName(siteConfig.getName());
+            site = siteService.save(site);
         }
 
         newPage.setContent(doc.text());
         newPage.setSite(site);
-        newPage.setPath(url.replace(siteAddress, ""));
-        newPage.setCode(200);
+        newPage.setPath(path);
+        newPage.setCode(fetchedPage.getStatusCode());
+        newPage.setEtag(fetchedPage.getEtag());
+        newPage.setLastModified(fetchedPage.getLastModified());
+        newPage.setContentHash(ContentHash.of(fetchedPage.getBody()));
 
         return newPage;
     }
@@ -0,0 +1,74 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.model.FetchedPage;
+import searchengine.utils.RobotsRules;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Загружает robots.txt хоста и хранит разобранные правила, пока не истечёт срок кэша.
+ * Если файла нет или он недоступен, обход ничем не ограничивается.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RobotsService {
+
+    private final PageFetchService pageFetchService;
+
+    private final CrawlerProperties properties;
+
+    private final Map<String, CachedRules> rulesByHost = new ConcurrentHashMap<>();
+
+    /**
+     * @param headAddress адрес хоста со схемой, без завершающего слэша
+     */
+    public RobotsRules getRules(String headAddress) {
+        if (!properties.isRespectRobotsTxt()) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        CachedRules cached = rulesByHost.get(headAddress);
+        if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+            return cached.rules;
+        }
+        RobotsRules rules = load(headAddress);
+        rulesByHost.put(headAddress, new CachedRules(rules,
+                System.currentTimeMillis() + properties.getRobotsTxtCacheTtl().toMillis()));
+        return rules;
+    }
+
+    private RobotsRules load(String headAddress) {
+        try {
+            FetchedPage robotsTxt = pageFetchService.fetchResource(headAddress + "/robots.txt");
+            if (!robotsTxt.isAccepted()) {
+                log.info("No robots.txt on {}: {}", headAddress, robotsTxt.getRejectReason());
+                return RobotsRules.ALLOW_ALL;
+            }
+            RobotsRules rules = RobotsRules.parse(new String(robotsTxt.getBody(), StandardCharsets.UTF_8),
+                    properties.getUserAgent());
+            log.info("robots.txt of {}: crawl delay {}, {} sitemaps", headAddress, rules.getCrawlDelay(),
+                    rules.getSitemaps().size());
+            return rules;
+        } catch (IOException e) {
+            log.warn("Failed to load robots.txt of {}: {}", headAddress, e.getMessage());
+            return RobotsRules.ALLOW_ALL;
+        }
+    }
+
+    private static class CachedRules {
+        private final RobotsRules rules;
+        private final long expiresAt;
+
+        private CachedRules(RobotsRules rules, long expiresAt) {
+            this.rules = rules;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import searchengine.config.properties.SearchProperties;
+import searchengine.dto.statistics.SearchResponse;
+import searchengine.utils.AfterCommit;
+import searchengine.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш результатов поиска в два уровня: ограниченный LRU в памяти процесса и общий для всех экземпляров Redis.
+ * Ключ - отсортированные леммы запроса, фильтр по сайту, окно выдачи и поколения индекса всех сайтов поиска.
+ * Запись в индекс сайта увеличивает его поколение, поэтому прежние ключи больше не встречаются
+ * и устаревшие записи просто вытесняются.
+ * Поколения общие в Redis, а процесс держит их копию: свои изменения видит сразу, чужие - не позже
+ * чем через result-cache-generation-refresh. Локальное поколение никогда не уменьшается, поэтому
+ * без Redis локальный уровень продолжает работать на своих поколениях.
+ */
+@Service
+@Slf4j
+public class SearchResultCache {
+
+    private static final String GENERATION_KEY = "searchGeneration::";
+
+    private static final String RESULT_KEY = "searchResult::";
+
+    private final SearchProperties properties;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final LruCache<String, CachedSearch> localCache;
+
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+
+    private final long generationRefreshNanos;
+
+    private volatile long generationsReadNanos;
+
+    private final Counter localHits;
+
+    private final Counter sharedHits;
+
+    private final Counter misses;
+
+    private final LongAdder savedNanos = new LongAdder();
+
+    public SearchResultCache(SearchProperties properties, RedisTemplate<String, Object> redisTemplate,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.localCache = new LruCache<>(properties.getResultCacheSize(), properties.getResultCacheConcurrency());
+        this.generationRefreshNanos = properties.getResultCacheGenerationRefresh().toNanos();
+        this.generationsReadNanos = System.nanoTime() - generationRefreshNanos;
+
+        this.localHits = Counter.builder("search.cache.requests").tag("result", "local_hit").register(meterRegistry);
+        this.sharedHits = Counter.builder("search.cache.requests").tag("result", "shared_hit").register(meterRegistry);
+        this.misses = Counter.builder("search.cache.requests").tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("search.cache.saved.time", savedNanos, adder -> adder.sum() / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("search.cache.hit.ratio", this, SearchResultCache::hitRatio).register(meterRegistry);
+        Gauge.builder("search.cache.local.size", localCache, LruCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Поколения берутся из копии процесса; из Redis они перечитываются, только если копия старше
+     * интервала обновления или в ней нет какого-то из сайтов.
+     *
+     * @return ключ запроса или null, если кэш выключен
+     */
+    public String key(Collection<String> lemmas, String site, int offset, int limit, Collection<Long> siteIds) {
+        if (!properties.isResultCache()) {
+            return null;
+        }
+        List<Long> sortedSiteIds = siteIds.stream().sorted().toList();
+        if (System.nanoTime() - generationsReadNanos >= generationRefreshNanos
+                || !generations.keySet().containsAll(sortedSiteIds)) {
+            refreshGenerations(sortedSiteIds);
+        }
+
+        StringBuilder key = new StringBuilder(RESULT_KEY);
+        key.append(String.join(",", lemmas.stream().sorted().toList()))
+                .append('|').append(site == null ? "*" : site)
+                .append('|').append(offset).append('|').append(limit).append('|');
+        for (Long siteId : sortedSiteIds) {
+            key.append(siteId).append(':').append(generations.getOrDefault(siteId, 0L)).append(';');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Время чтения отмечается и при ошибке, чтобы недоступный Redis не опрашивался на каждом запросе.
+     */
+    private void refreshGenerations(List<Long> siteIds) {
+        generationsReadNanos = System.nanoTime();
+        List<Object> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(siteIds.stream().map(id -> GENERATION_KEY + id).toList());
+        } catch (RuntimeException e) {
+            log.debug("Index generations are unavailable, using local copies: {}", e.getMessage());
+            siteIds.forEach(siteId -> generations.putIfAbsent(siteId, 0L));
+            return;
+        }
+        for (int i = 0; i < siteIds.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            long generation = value instanceof Number number ? number.longValue() : 0;
+            generations.merge(siteIds.get(i), generation, Math::max);
+        }
+    }
+
+    public SearchResponse get(String key) {
+        if (key == null) {
+            return null;
+        }
+        CachedSearch cached = localCache.get(key);
+        if (cached != null) {
+            localHits.increment();
+            savedNanos.add(cached.getComputeNanos());
+            return cached.getResponse();
+        }
+        try {
+            cached = (CachedSearch) redisTemplate.opsForValue().get(key);
+        } catch (RuntimeException e) {
+            log.debug("Shared search cache read failed: {}", e.getMessage());
+        }
+        if (cached != null) {
+            sharedHits.increment();
+            savedNanos.add(cached.getComputeNanos());
+            localCache.put(key, cached);
+            return cached.getResponse();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @param computeNanos сколько занял поиск без кэша; столько же экономит каждое попадание
+     */
+    public void put(String key, SearchResponse response, long computeNanos) {
+        if (key == null) {
+            return;
+        }
+        CachedSearch cached = new CachedSearch(response, computeNanos);
+        localCache.put(key, cached);
+        try {
+            redisTemplate.opsForValue().set(key, cached, properties.getResultCacheTtl());
+        } catch (RuntimeException e) {
+            log.debug("Shared search cache write failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Увеличивает поколение индекса сайтов после фиксации транзакции, которая их изменила.
+     * Копия процесса растёт сразу, даже если Redis недоступен.
+     */
+    public void invalidate(Collection<Long> siteIds) {
+        if (!properties.isResultCache() || siteIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(siteIds);
+        AfterCommit.run(() -> {
+            for (Long siteId : ids) {
+                Long shared = null;
+                try {
+                    shared = redisTemplate.opsForValue().increment(GENERATION_KEY + siteId);
+                } catch (RuntimeException e) {
+                    // Общее поколение не выросло: другие экземпляры могут отдать устаревший результат до его TTL.
+                    // Локальный уровень сбрасывается, чтобы после возврата Redis не совпасть со старым ключом
+                    log.warn("Failed to bump search index generation of site {}: {}", siteId, e.getMessage());
+                    localCache.clear();
+                }
+                long bumped = shared == null ? 0 : shared;
+                generations.compute(siteId, (id, local) -> Math.max(local == null ? 1 : local + 1, bumped));
+            }
+        });
+    }
+
+    private double hitRatio() {
+        double hits = localHits.count() + sharedHits.count();
+        double requests = hits + misses.count();
+        return requests == 0 ? 0.0 : hits / requests;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CachedSearch {
+
+        private SearchResponse response;
+
+        private long computeNanos;
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Таблицы pages, lemmas и indexes секционированы по site_id, у каждого сайта свои секции.
+ * Сброс сайта - удаление его секций: это не зависит от числа строк и не пишет каждую строку в WAL.
+ * Строки сайта, для которого секции не созданы, попадают в секции по умолчанию.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SitePartitionService {
+
+    private static final List<String> PARTITIONED_TABLES = List.of("pages", "lemmas", "indexes");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void createPartitions(Long siteId) {
+        for (String table : PARTITIONED_TABLES) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(table, siteId) +
+                    " PARTITION OF " + table + " FOR VALUES IN (" + siteId + ")");
+        }
+    }
+
+    @Transactional
+    public void dropPartitions(Long siteId) {
+        long start = System.currentTimeMillis();
+        for (String table : PARTITIONED_TABLES) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(table, siteId));
+        }
+        log.info("Partitions of site {} dropped in {}ms", siteId, System.currentTimeMillis() - start);
+    }
+
+    private static String partitionName(String table, Long siteId) {
+        return table + "_site_" + siteId;
+    }
+}
@@ -3,6 +3,7 @@ package searchengine.services;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Site;
 import searchengine.repository.SiteRepository;
 import searchengine.utils.BeanUtils;
@@ -16,6 +17,12 @@ public class SiteService {
 
     private final SiteRepository repository;
 
+    private final SitePartitionService sitePartitionService;
+
+    private final InMemorySearchIndex inMemorySearchIndex;
+
+    private final SearchResultCache searchResultCache;
+
     public List<Site> findAll() {
         return repository.findAll();
     }
@@ -28,8 +35,15 @@ public class SiteService {
         return repository.findByUrl(url).orElse(null);
     }
 
+    /**
+     * Сайт и его секции создаются в одной транзакции: без секций строки сайта попали бы
+     * в секцию по умолчанию, и создать их потом было бы уже нельзя.
+     */
+    @Transactional
     public Site save(Site site) {
-        return repository.save(site);
+        Site savedSite = repository.save(site);
+        sitePartitionService.createPartitions(savedSite.getId());
+        return savedSite;
     }
 
     public Site update(Site site) {
@@ -38,15 +52,25 @@ public class SiteService {
         return repository.save(site);
     }
 
+    @Transactional
     public void delete(Site site) {
-        repository.delete(site);
+        deleteById(site.getId());
     }
 
+    @Transactional
     public void deleteByUrl(String url) {
-        repository.deleteByUrl(url);
+        repository.findByUrl(url).ifPresent(this::delete);
     }
 
+    /**
+     * Страницы, леммы и индекс сайта удаляются вместе с его секциями, поэтому
+     * каскад JPA при удалении самого сайта уже не находит строк. Секции и сайт удаляются в одной транзакции.
+     */
+    @Transactional
     public void deleteById(Long id) {
+        sitePartitionService.dropPartitions(id);
         repository.deleteById(id);
+        inMemorySearchIndex.removeSite(id);
+        searchResultCache.invalidate(List.of(id));
     }
 }
@@ -0,0 +1,115 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.springframework.stereotype.Service;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.model.FetchedPage;
+import searchengine.model.SitemapEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Собирает адреса страниц из sitemap.xml, раскрывая индексы sitemap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SitemapService {
+
+    private final PageFetchService pageFetchService;
+
+    private final CrawlerProperties properties;
+
+    /**
+     * @param sitemapUrls адреса sitemap из robots.txt или адрес по умолчанию
+     * @param limit       сколько адресов страниц собрать не больше
+     */
+    public List<SitemapEntry> collect(List<String> sitemapUrls, int limit) {
+        List<SitemapEntry> entries = new ArrayList<>();
+        Deque<String> queue = new ArrayDeque<>(sitemapUrls);
+        Set<String> visited = new HashSet<>();
+
+        while (!queue.isEmpty() && entries.size() < limit && visited.size() < properties.getMaxSitemapFiles()) {
+            String sitemapUrl = queue.poll();
+            if (!visited.add(sitemapUrl)) {
+                continue;
+            }
+            Document sitemap = load(sitemapUrl);
+            if (sitemap == null) {
+                continue;
+            }
+            for (Element loc : sitemap.select("sitemap > loc")) {
+                queue.add(loc.text().trim());
+            }
+            for (Element url : sitemap.select("url")) {
+                Element loc = url.selectFirst("loc");
+                if (loc == null || entries.size() >= limit) {
+                    continue;
+                }
+                Element lastmod = url.selectFirst("lastmod");
+                entries.add(new SitemapEntry(loc.text().trim(), lastmod == null ? null : parseDate(lastmod.text().trim())));
+            }
+        }
+        log.info("Collected {} urls from {} sitemaps", entries.size(), visited.size());
+        return entries;
+    }
+
+    private Document load(String sitemapUrl) {
+        try {
+            FetchedPage fetched = pageFetchService.fetchResource(sitemapUrl);
+            if (!fetched.isAccepted()) {
+                log.info("Sitemap {} skipped: {}", sitemapUrl, fetched.getRejectReason());
+                return null;
+            }
+            try (InputStream body = unpack(fetched.getBody())) {
+                return Jsoup.parse(body, fetched.getCharset(), sitemapUrl, Parser.xmlParser());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to load sitemap {}: {}", sitemapUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * sitemap.xml.gz отдаётся как сжатый файл, а не как ответ со сжатием.
+     */
+    private static InputStream unpack(byte[] body) throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        if (body.length > 2 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b) {
+            return new GZIPInputStream(in);
+        }
+        return in;
+    }
+
+    private static Instant parseDate(String value) {
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value)
+                        .atStartOfDay(ZoneOffset.UTC).toInstant();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
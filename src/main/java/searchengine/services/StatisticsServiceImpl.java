@@ -6,31 +6,30 @@ import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
-import searchengine.model.Lemma;
-import searchengine.model.Page;
 import searchengine.model.Site;
+import searchengine.repository.SearchIndexRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
 
     private final SiteService siteService;
-    private final PageService pageService;
-    private final LemmaService lemmaService;
+    private final SearchIndexRepository searchIndexRepository;
 
     @Override
     public StatisticsResponse getStatistics() {
         List<Site> siteList = siteService.findAll();
-        List<Page> pageList = pageService.findAll();
-        List<Lemma> lemmaList = lemmaService.findAll();
+        Map<Long, Integer> pagesBySite = searchIndexRepository.countPagesBySite();
+        Map<Long, Integer> lemmasBySite = searchIndexRepository.countLemmasBySite();
 
         TotalStatistics total = new TotalStatistics();
         total.setSites(siteList.size());
-        total.setPages(pageList.size());
-        total.setLemmas(lemmaList.size());
+        total.setPages(pagesBySite.values().stream().mapToInt(Integer::intValue).sum());
+        total.setLemmas(lemmasBySite.values().stream().mapToInt(Integer::intValue).sum());
         total.setIndexing(true);
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
@@ -39,8 +38,8 @@ public class StatisticsServiceImpl implements StatisticsService {
             DetailedStatisticsItem item = new DetailedStatisticsItem();
             item.setName(site.getName());
             item.setUrl(site.getUrl());
-            int pages = site.getPages().size();
-            int lemmas = site.getLemmas().size();
+            int pages = pagesBySite.getOrDefault(site.getId(), 0);
+            int lemmas = lemmasBySite.getOrDefault(site.getId(), 0);
             item.setPages(pages);
             item.setLemmas(lemmas);
             item.setStatus(site.getStatus().toString());
@@ -0,0 +1,22 @@
+package searchengine.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Хэш тела страницы, по которому повторный обход узнаёт, изменилась ли она.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static String of(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,60 +1,39 @@
 package searchengine.utils;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.lucene.morphology.LuceneMorphology;
-import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import searchengine.model.WordForms;
+import searchengine.services.MorphologyService;
 
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Slf4j
 public class LemmasFinder {
 
-    public static HashMap<String, Integer> getLemmasHashMap(String text) throws IOException {
+    public static HashMap<String, Integer> getLemmasHashMap(String text, MorphologyService morphologyService) {
         long start = System.currentTimeMillis();
         log.info("Starting get LemmasHashMap");
 
         text = Jsoup.parse(text).text();
-        String[] wordsArray = text.split("\\s+|,\\s*|\\.\\s*|;\\s*");
-
-        List<String> wordsList = new ArrayList<>(Arrays.asList(wordsArray));
-
-        ConcurrentHashMap<String, Integer> lemmas = new ConcurrentHashMap<>();
-        LuceneMorphology russianMorphology = new RussianLuceneMorphology();
-        LuceneMorphology englishMorphology = new EnglishLuceneMorphology();
-
-        for (String word : wordsList) {
-            LuceneMorphology luceneMorph;
-            if (word.matches("[А-Яа-я]+")) {
-                luceneMorph = russianMorphology;
-            } else if (word.matches("[A-Za-z]+")) {
-                luceneMorph = englishMorphology;
-            } else {
-                continue;
+
+        StringIntCounter lemmas = new StringIntCounter(1024);
+
+        WordTokenizer.tokenize(text, (word, language) -> {
+            WordForms wordForms = morphologyService.getWordForms(word, language);
+
+            if (wordForms.isFunctionWord()) {
+                return;
             }
-            List<String> wordBaseForms = luceneMorph.getNormalForms(word.toLowerCase(Locale.ROOT));
-            List<String> wordBaseInfo = luceneMorph.getMorphInfo(word.toLowerCase(Locale.ROOT));
-
-            wordBaseForms.forEach(baseForm -> {
-                if (wordBaseInfo.get(0).contains("|l") || wordBaseInfo.get(0).contains("|n") || wordBaseInfo.get(0).contains("|o")) {
-                    return;
-                }
-                if (lemmas.containsKey(baseForm)) {
-                    lemmas.put(baseForm, lemmas.get(baseForm) + 1);
-                } else {
-                    lemmas.put(baseForm, 1);
-                }
-            });
-        }
+            for (String baseForm : wordForms.getNormalForms()) {
+                lemmas.increment(baseForm);
+            }
+        });
 
         log.info("Finishing get LemmasHashMap: {}ms", System.currentTimeMillis() - start);
-        return new HashMap<>(lemmas);
+        return lemmas.toHashMap();
     }
 
     public static String extractFragmentsWithHighlight(String html, List<String> lemmas) {
@@ -0,0 +1,101 @@
+package searchengine.utils;
+
+/**
+ * Счётчик по ключам long на открытой адресации, без упаковки ключей и значений в объекты.
+ */
+public class LongIntCounter {
+
+    private long[] keys;
+
+    private int[] values;
+
+    private boolean[] used;
+
+    private int size;
+
+    public LongIntCounter() {
+        this(64);
+    }
+
+    public LongIntCounter(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+
+    public void add(long key, int delta) {
+        int slot = slotOf(key, keys, used);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = delta;
+            size++;
+            if (size * 2 > keys.length) {
+                rehash();
+            }
+            return;
+        }
+        values[slot] += delta;
+    }
+
+    public int get(long key) {
+        int slot = slotOf(key, keys, used);
+        return used[slot] ? values[slot] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Ключи и значения вперемешку с пустыми ячейками сворачиваются в два плотных массива.
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int index = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                result[index++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        allocate(Math.max(8, Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1));
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i], keys, used);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(long key, long[] table, boolean[] used) {
+        int mask = table.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (used[slot] && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
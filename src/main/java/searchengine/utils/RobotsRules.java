@@ -0,0 +1,160 @@
+package searchengine.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Правила robots.txt для одного робота. Из подходящих правил побеждает самое длинное,
+ * при равной длине - разрешающее; поддерживаются шаблоны с * и $.
+ */
+public class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), null, List.of());
+
+    private final List<Rule> rules;
+
+    private final Duration crawlDelay;
+
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, Duration crawlDelay, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelay = crawlDelay;
+        this.sitemaps = sitemaps;
+    }
+
+    /**
+     * Берёт группу правил, в User-agent которой упомянут robotName, а если такой нет - группу для *.
+     */
+    public static RobotsRules parse(String robotsTxt, String robotName) {
+        String robot = robotName.toLowerCase(Locale.ROOT);
+        Group own = new Group();
+        Group common = new Group();
+        List<String> sitemaps = new ArrayList<>();
+
+        List<Group> current = new ArrayList<>();
+        boolean readingAgents = false;
+
+        for (String rawLine : robotsTxt.split("\\r?\\n|\\r")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (field) {
+                case "user-agent" -> {
+                    if (!readingAgents) {
+                        current.clear();
+                        readingAgents = true;
+                    }
+                    String agent = value.toLowerCase(Locale.ROOT);
+                    if (agent.equals("*")) {
+                        current.add(common);
+                    } else if (!agent.isEmpty() && robot.contains(agent)) {
+                        own.declared = true;
+                        current.add(own);
+                    }
+                }
+                case "allow", "disallow" -> {
+                    readingAgents = false;
+                    if (!value.isEmpty()) {
+                        Rule rule = new Rule(value, field.equals("allow"));
+                        current.forEach(group -> group.rules.add(rule));
+                    }
+                }
+                case "crawl-delay" -> {
+                    readingAgents = false;
+                    Duration delay = parseDelay(value);
+                    current.forEach(group -> group.crawlDelay = delay);
+                }
+                case "sitemap" -> sitemaps.add(value);
+                default -> readingAgents = false;
+            }
+        }
+
+        // Своя группа побеждает, даже если пуста: "Disallow:" без пути разрешает роботу всё
+        Group group = own.declared ? own : common;
+        return new RobotsRules(List.copyOf(group.rules), group.crawlDelay, List.copyOf(sitemaps));
+    }
+
+    /**
+     * @param path путь вместе со строкой запроса, начинается с /
+     */
+    public boolean isAllowed(String path) {
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null || rule.length > best.length
+                    || rule.length == best.length && rule.allow)) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    public Duration getCrawlDelay() {
+        return crawlDelay;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static Duration parseDelay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            return seconds > 0 ? Duration.ofMillis((long) (seconds * 1000)) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static class Group {
+        private final List<Rule> rules = new ArrayList<>();
+        private Duration crawlDelay;
+        private boolean declared;
+    }
+
+    private static class Rule {
+        private final String pattern;
+        private final boolean allow;
+        private final int length;
+        private final boolean anchored;
+
+        private Rule(String pattern, boolean allow) {
+            this.anchored = pattern.endsWith("$");
+            this.pattern = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+            this.allow = allow;
+            this.length = pattern.length();
+        }
+
+        private boolean matches(String path) {
+            return matches(path, 0, 0);
+        }
+
+        private boolean matches(String path, int pathIndex, int patternIndex) {
+            while (patternIndex < pattern.length()) {
+                char c = pattern.charAt(patternIndex);
+                if (c == '*') {
+                    for (int i = pathIndex; i <= path.length(); i++) {
+                        if (matches(path, i, patternIndex + 1)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (pathIndex >= path.length() || path.charAt(pathIndex) != c) {
+                    return false;
+                }
+                pathIndex++;
+                patternIndex++;
+            }
+            return !anchored || pathIndex == path.length();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package searchengine.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Масштабируемый фильтр Блума над 64-битными отпечатками. Когда очередной
+ * фильтр заполняется, добавляется следующий, вдвое больший и с вдвое меньшей
+ * вероятностью ложного срабатывания, так что суммарная вероятность остаётся
+ * в пределах заданной при любом числе элементов. Не потокобезопасен.
+ */
+public class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    private long size;
+
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters");
+        }
+        stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    public static long fingerprint(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    public boolean mightContain(long fingerprint) {
+        long secondHash = secondHash(fingerprint);
+        for (Stage stage : stages) {
+            if (stage.mightContain(fingerprint, secondHash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(long fingerprint) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last.count >= last.capacity) {
+            last = new Stage(last.capacity * GROWTH_FACTOR, last.falsePositiveRate * TIGHTENING_RATIO);
+            stages.add(last);
+        }
+        last.put(fingerprint, secondHash(fingerprint));
+        size++;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += (long) stage.bits.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Вероятность ложного срабатывания при текущем заполнении фильтров.
+     */
+    public double estimatedFalsePositiveRate() {
+        double notFalsePositive = 1.0;
+        for (Stage stage : stages) {
+            notFalsePositive *= 1.0 - Math.pow((double) stage.bitsSet / stage.numBits, stage.numHashes);
+        }
+        return 1.0 - notFalsePositive;
+    }
+
+    private static long secondHash(long fingerprint) {
+        return mix(fingerprint ^ 0x9e3779b97f4a7c15L) | 1L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static class Stage {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long numBits;
+        private final int numHashes;
+        private final long[] bits;
+        private long count;
+        private long bitsSet;
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new long[(int) ((optimalBits + 63) / 64)];
+            this.numBits = (long) bits.length * 64;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        }
+
+        private boolean mightContain(long firstHash, long secondHash) {
+            for (int i = 0; i < numHashes; i++) {
+                long index = Math.floorMod(firstHash + i * secondHash, numBits);
+                if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long firstHash, long secondHash) {
+            for (int i = 0; i < numHashes; i++) {
+                long index = Math.floorMod(firstHash + i * secondHash, numBits);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                if ((bits[word] & mask) == 0) {
+                    bits[word] |= mask;
+                    bitsSet++;
+                }
+            }
+            count++;
+        }
+    }
+}
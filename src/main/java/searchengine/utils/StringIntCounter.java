@@ -0,0 +1,96 @@
+package searchengine.utils;
+
+import java.util.HashMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Счётчик строк на открытой адресации: значения хранятся в int[],
+ * поэтому инкремент не создаёт объектов Integer.
+ */
+public class StringIntCounter {
+
+    private String[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    public StringIntCounter() {
+        this(64);
+    }
+
+    public StringIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new String[capacity];
+        values = new int[capacity];
+    }
+
+    public void increment(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, int delta) {
+        int slot = slotOf(key, keys);
+        if (keys[slot] == null) {
+            keys[slot] = key;
+            size++;
+            if (size * 2 > keys.length) {
+                values[slot] = delta;
+                rehash();
+                return;
+            }
+        }
+        values[slot] += delta;
+    }
+
+    public int get(String key) {
+        int slot = slotOf(key, keys);
+        return keys[slot] == null ? 0 : values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(ObjIntConsumer<String> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public HashMap<String, Integer> toHashMap() {
+        HashMap<String, Integer> map = new HashMap<>(size * 2);
+        forEach(map::put);
+        return map;
+    }
+
+    private void rehash() {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length << 1];
+        values = new int[oldValues.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotOf(oldKeys[i], keys);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(String key, String[] table) {
+        int mask = table.length - 1;
+        int hash = key.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (table[slot] != null && !table[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,148 @@
+package searchengine.utils;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Приводит адреса к одному виду, чтобы одна и та же страница не попадала в обход под разными адресами:
+ * схема и хост в нижнем регистре, без порта по умолчанию, фрагмента, завершающего слэша
+ * и служебных параметров запроса; оставшиеся параметры отсортированы.
+ * Заодно отсеивает адреса, которые не нужно обходить.
+ */
+public class UrlCanonicalizer {
+
+    private static final String UNSAFE_CHARACTERS = "\"<>\\^`{|}";
+
+    private static final Pattern REPEATED_SLASHES = Pattern.compile("/{2,}");
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final Set<String> excludedExtensions;
+
+    private final List<String> excludedUrlParts;
+
+    private final Set<String> ignoredQueryParameters;
+
+    private final boolean keepQueryStrings;
+
+    public UrlCanonicalizer(List<String> excludedExtensions, List<String> excludedUrlParts,
+                            List<String> ignoredQueryParameters, boolean keepQueryStrings) {
+        this.excludedExtensions = lowerCase(excludedExtensions).collect(Collectors.toSet());
+        this.excludedUrlParts = lowerCase(excludedUrlParts).toList();
+        this.ignoredQueryParameters = lowerCase(ignoredQueryParameters).collect(Collectors.toSet());
+        this.keepQueryStrings = keepQueryStrings;
+    }
+
+    /**
+     * @return канонический адрес или null, если адрес некорректен, не http(s) или исключён правилами
+     */
+    public String canonicalize(String url) {
+        URI uri = parse(url);
+        if (uri == null || uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return null;
+        }
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https") || uri.getHost() == null) {
+            return null;
+        }
+
+        StringBuilder canonical = new StringBuilder(url.length());
+        canonical.append(scheme).append("://").append(uri.getHost().toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (port != -1 && !(port == 80 && scheme.equals("http")) && !(port == 443 && scheme.equals("https"))) {
+            canonical.append(':').append(port);
+        }
+
+        String path = uri.getRawPath() == null ? "" : REPEATED_SLASHES.matcher(uri.normalize().getRawPath()).replaceAll("/");
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (isExcludedPath(path)) {
+            return null;
+        }
+        canonical.append(path.isEmpty() ? "/" : path);
+
+        if (keepQueryStrings && uri.getRawQuery() != null) {
+            String query = canonicalQuery(uri.getRawQuery());
+            if (!query.isEmpty()) {
+                canonical.append('?').append(query);
+            }
+        }
+
+        String result = canonical.toString();
+        String lowerCaseResult = result.toLowerCase(Locale.ROOT);
+        for (String part : excludedUrlParts) {
+            if (lowerCaseResult.contains(part)) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private boolean isExcludedPath(String path) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        return dot > slash && excludedExtensions.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private String canonicalQuery(String rawQuery) {
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            int equals = parameter.indexOf('=');
+            String name = (equals >= 0 ? parameter.substring(0, equals) : parameter).toLowerCase(Locale.ROOT);
+            if (!ignoredQueryParameters.contains(name) && !name.startsWith("utm_")) {
+                parameters.add(parameter);
+            }
+        }
+        parameters.sort(null);
+        return String.join("&", parameters);
+    }
+
+    /**
+     * Jsoup не экранирует пробелы и кириллицу в href, а URI их не принимает.
+     */
+    private static URI parse(String url) {
+        try {
+            return new URI(escape(url.trim()));
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String url) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c > ' ' && c < 0x7f && UNSAFE_CHARACTERS.indexOf(c) < 0) {
+                if (escaped != null) {
+                    escaped.append(c);
+                }
+                continue;
+            }
+            if (escaped == null) {
+                escaped = new StringBuilder(url.length() + 16).append(url, 0, i);
+            }
+            int end = Character.isHighSurrogate(c) && i + 1 < url.length() ? i + 2 : i + 1;
+            for (byte b : url.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                escaped.append('%').append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+            }
+            i = end - 1;
+        }
+        return escaped == null ? url : escaped.toString();
+    }
+
+    private static Stream<String> lowerCase(List<String> values) {
+        return values.stream().map(value -> value.toLowerCase(Locale.ROOT));
+    }
+}
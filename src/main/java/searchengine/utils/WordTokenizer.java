@@ -0,0 +1,78 @@
+package searchengine.utils;
+
+import searchengine.model.Language;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Разбивает текст на слова за один проход по символам, без регулярных выражений.
+ * Правила те же, что у прежнего разбиения split("\\s+|,\\s*|\\.\\s*|;\\s*"), по которому построены
+ * сохранённые индексы: слова разделяются пробельными символами ASCII, запятыми, точками и точками с запятой.
+ * Слово, целиком состоящее из кириллицы (А-Я, а-я) или латиницы (A-Z, a-z), передаётся в обработчик
+ * в нижнем регистре. Слово с любым другим символом (дефис, цифра, апостроф, ё, смешанные алфавиты и т.п.)
+ * пропускается целиком, а не режется на части.
+ */
+public final class WordTokenizer {
+
+    private static final int SEPARATOR = 0;
+    private static final int CYRILLIC = 1;
+    private static final int LATIN = 2;
+    private static final int INVALID = 3;
+
+    private WordTokenizer() {
+    }
+
+    public static void tokenize(CharSequence text, BiConsumer<String, Language> consumer) {
+        int start = -1;
+        int wordScript = SEPARATOR;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            int script = scriptOf(c);
+
+            if (script == SEPARATOR) {
+                if (start >= 0 && wordScript != INVALID) {
+                    consumer.accept(toLowerCase(text, start, i, wordScript),
+                            wordScript == CYRILLIC ? Language.RUSSIAN : Language.ENGLISH);
+                }
+                start = -1;
+                wordScript = SEPARATOR;
+                continue;
+            }
+
+            if (start < 0) {
+                start = i;
+                wordScript = script;
+            } else if (wordScript != script) {
+                wordScript = INVALID;
+            }
+        }
+    }
+
+    private static int scriptOf(char c) {
+        if ((c >= 'а' && c <= 'я') || (c >= 'А' && c <= 'Я')) {
+            return CYRILLIC;
+        }
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+            return LATIN;
+        }
+        return switch (c) {
+            case ' ', '\t', '\n', '\u000B', '\f', '\r', ',', '.', ';' -> SEPARATOR;
+            default -> INVALID;
+        };
+    }
+
+    private static String toLowerCase(CharSequence text, int start, int end, int script) {
+        char[] word = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (script == CYRILLIC && c <= 'Я') {
+                c = (char) (c + ('а' - 'А'));
+            } else if (script == LATIN && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            word[i - start] = c;
+        }
+        return new String(word);
+    }
+}
@@ -0,0 +1,33 @@
+package searchengine.worker;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.services.CrawlCheckpointService;
+import searchengine.services.PageFetchService;
+import searchengine.services.RobotsService;
+import searchengine.services.SitemapService;
+
+/**
+ * Всё, что краулеры сайтов одного запуска индексации используют совместно.
+ */
+@Getter
+@AllArgsConstructor
+public class CrawlContext {
+
+    private final CrawlerProperties properties;
+
+    private final HostPolitenessScheduler politenessScheduler;
+
+    private final CrawlExecutors executors;
+
+    private final IndexingPipeline pipeline;
+
+    private final CrawlCheckpointService checkpointService;
+
+    private final PageFetchService pageFetchService;
+
+    private final RobotsService robotsService;
+
+    private final SitemapService sitemapService;
+}
@@ -0,0 +1,71 @@
+package searchengine.worker;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import searchengine.config.properties.CrawlerProperties;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пулы одного запуска индексации: загрузка страниц (блокирующий ввод-вывод)
+ * и отдельный пул по числу процессоров для разбора HTML и лемматизации.
+ */
+@Slf4j
+@Getter
+public class CrawlExecutors {
+
+    private final ExecutorService fetchExecutor;
+
+    private final ForkJoinPool cpuPool;
+
+    public CrawlExecutors(CrawlerProperties properties) {
+        int cpuThreads = properties.getCpuThreads() > 0
+                ? properties.getCpuThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.fetchExecutor = createFetchExecutor(properties);
+        this.cpuPool = new ForkJoinPool(cpuThreads);
+    }
+
+    public void shutdown() {
+        fetchExecutor.shutdown();
+        cpuPool.shutdown();
+    }
+
+    public void shutdownNow() {
+        fetchExecutor.shutdownNow();
+        cpuPool.shutdownNow();
+    }
+
+    /**
+     * Виртуальные потоки доступны начиная с Java 21; на более старой JVM
+     * загрузка идёт через фиксированный пул платформенных потоков.
+     */
+    private static ExecutorService createFetchExecutor(CrawlerProperties properties) {
+        if (properties.getFetchMode() == CrawlerProperties.FetchMode.VIRTUAL) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                log.info("Crawl fetch executor: virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not available on Java {}, using {} platform fetch threads",
+                        Runtime.version().feature(), properties.getFetchThreads());
+            }
+        }
+        log.info("Crawl fetch executor: {} platform threads", properties.getFetchThreads());
+        return Executors.newFixedThreadPool(properties.getFetchThreads(), fetchThreadFactory());
+    }
+
+    private static ThreadFactory fetchThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "crawl-fetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
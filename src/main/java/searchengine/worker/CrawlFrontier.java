@@ -0,0 +1,192 @@
+package searchengine.worker;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.model.CrawlUrlStatus;
+import searchengine.model.PageUrl;
+import searchengine.services.CrawlCheckpointService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Очередь адресов одного сайта, ожидающих обхода. Ограничена по глубине ссылок
+ * и по общему числу страниц сайта; каждый путь попадает в очередь не более одного раза.
+ * В памяти держится не больше capacity адресов, остальные ждут в таблице crawl_frontier.
+ * Туда же пишется каждый принятый адрес, так что прерванный обход можно продолжить.
+ * Отложенные адреса подгружаются в фоне, когда очередь в памяти опустела наполовину,
+ * чтобы запрос к базе не выполнялся под блокировкой очереди и краулера.
+ */
+@Slf4j
+public class CrawlFrontier {
+
+    private final Deque<PageUrl> queue = new ArrayDeque<>();
+
+    private final SeenUrlSet seenUrls;
+
+    private final Long siteId;
+
+    private final CrawlCheckpointService checkpointService;
+
+    private final int capacity;
+
+    private final int maxDepth;
+
+    private final int maxPages;
+
+    private final Executor prefetchExecutor;
+
+    private final Runnable refillListener;
+
+    private int acceptedPages;
+
+    private long pendingInStore;
+
+    private boolean prefetching;
+
+    /**
+     * @param prefetchExecutor где подгружаются отложенные адреса
+     * @param refillListener   вызывается после подгрузки, вне блокировки очереди
+     */
+    public CrawlFrontier(Long siteId, CrawlCheckpointService checkpointService, CrawlerProperties properties,
+                         Executor prefetchExecutor, Runnable refillListener) {
+        this.siteId = siteId;
+        this.checkpointService = checkpointService;
+        this.prefetchExecutor = prefetchExecutor;
+        this.refillListener = refillListener;
+        this.capacity = properties.getFrontierCapacity();
+        this.maxDepth = properties.getMaxDepth();
+        this.maxPages = properties.getMaxPagesPerSite();
+        this.seenUrls = new SeenUrlSet(siteId, checkpointService, properties.getSeenUrlsInitialCapacity(),
+                properties.getSeenUrlsFalsePositiveRate(), properties.getRecentUrlsCacheSize());
+    }
+
+    /**
+     * Восстанавливает очередь прерванного обхода.
+     *
+     * @return true, если в сохранённой очереди остались необработанные адреса
+     */
+    public synchronized boolean restore() {
+        checkpointService.resetQueued(siteId);
+        acceptedPages = (int) seenUrls.restore();
+        pendingInStore = checkpointService.countByStatus(siteId, CrawlUrlStatus.PENDING);
+        if (pendingInStore > 0) {
+            log.info("Resuming crawl of site {}: {} urls known, {} pending", siteId, acceptedPages, pendingInStore);
+        }
+        return pendingInStore > 0;
+    }
+
+    public boolean offer(PageUrl pageUrl) {
+        return offerAll(List.of(pageUrl)) > 0;
+    }
+
+    /**
+     * @return сколько адресов принято в очередь
+     */
+    public synchronized int offerAll(List<PageUrl> pageUrls) {
+        List<PageUrl> queued = new ArrayList<>();
+        List<PageUrl> pending = new ArrayList<>();
+
+        if (acceptedPages >= maxPages) {
+            return 0;
+        }
+        List<PageUrl> candidates = pageUrls.stream().filter(pageUrl -> pageUrl.getDepth() <= maxDepth).toList();
+
+        for (PageUrl pageUrl : seenUrls.retainUnseen(candidates)) {
+            if (acceptedPages >= maxPages) {
+                break;
+            }
+            acceptedPages++;
+            if (queue.size() < capacity) {
+                queue.offer(pageUrl);
+                queued.add(pageUrl);
+            } else {
+                pending.add(pageUrl);
+            }
+        }
+
+        if (!queued.isEmpty()) {
+            checkpointService.save(siteId, queued, CrawlUrlStatus.QUEUED);
+        }
+        if (!pending.isEmpty()) {
+            checkpointService.save(siteId, pending, CrawlUrlStatus.PENDING);
+            pendingInStore += pending.size();
+        }
+        return queued.size() + pending.size();
+    }
+
+    /**
+     * @return null, если в памяти адресов нет; отложенные тогда уже подгружаются
+     */
+    public synchronized PageUrl poll() {
+        PageUrl next = queue.poll();
+        if (queue.size() <= capacity / 2 && pendingInStore > 0 && !prefetching) {
+            startPrefetch();
+        }
+        return next;
+    }
+
+    private void startPrefetch() {
+        int limit = Math.max(1, capacity - queue.size());
+        long knownPending = pendingInStore;
+        prefetching = true;
+        try {
+            prefetchExecutor.execute(() -> prefetch(limit, knownPending));
+        } catch (RejectedExecutionException e) {
+            prefetching = false;
+            pendingInStore = 0;
+            log.warn("Prefetch of pending urls of site {} rejected: executor is shut down", siteId);
+        }
+    }
+
+    /**
+     * Пока шёл запрос, в базу могли отложить новые адреса: если порция пуста, обнуляется
+     * только то, что было известно на момент запуска. Не подгруженные из-за ошибки адреса
+     * остаются отложенными в базе и будут пройдены при продолжении обхода.
+     */
+    private void prefetch(int limit, long knownPending) {
+        List<PageUrl> restored = List.of();
+        try {
+            restored = checkpointService.takePending(siteId, limit);
+        } catch (Exception e) {
+            log.warn("Failed to load pending urls of site {}: {}", siteId, e.getMessage());
+        }
+        synchronized (this) {
+            pendingInStore = Math.max(0, pendingInStore - (restored.isEmpty() ? knownPending : restored.size()));
+            queue.addAll(restored);
+            prefetching = false;
+        }
+        refillListener.run();
+    }
+
+    /**
+     * Возвращает в начало очереди адрес, который не удалось отдать в работу.
+     */
+    public synchronized void pushBack(PageUrl pageUrl) {
+        queue.addFirst(pageUrl);
+    }
+
+    public synchronized boolean isEmpty() {
+        return queue.isEmpty() && pendingInStore == 0 && !prefetching;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized int getAcceptedPages() {
+        return acceptedPages;
+    }
+
+    public SeenUrlSet getSeenUrls() {
+        return seenUrls;
+    }
+
+    public synchronized long getPendingInStore() {
+        return pendingInStore;
+    }
+}
@@ -0,0 +1,119 @@
+package searchengine.worker;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Следит за тем, чтобы к одному хосту уходило не больше запросов, чем разрешено:
+ * не чаще одного запроса за интервал и не больше заданного числа одновременно.
+ * Задача не ждёт своей очереди в потоке пула, а откладывается через таймер.
+ * Интервал для хоста можно увеличить, например по Crawl-delay из robots.txt.
+ */
+public class HostPolitenessScheduler {
+
+    private final long requestIntervalNanos;
+
+    private final int maxConcurrentRequests;
+
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "crawl-politeness-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HostPolitenessScheduler(Duration requestInterval, int maxConcurrentRequests) {
+        this.requestIntervalNanos = requestInterval.toNanos();
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * Планирует запрос к хосту на ближайший разрешённый момент.
+     *
+     * @param onRejected вызывается, если отложенную задачу не принял закрывшийся пул
+     * @return false, если к хосту уже выполняется максимум запросов
+     */
+    public boolean trySchedule(String host, Runnable task, Executor executor, Runnable onRejected) {
+        HostState state = hostState(host);
+        long delay;
+        synchronized (state) {
+            if (state.inFlight >= maxConcurrentRequests) {
+                return false;
+            }
+            state.inFlight++;
+            long now = System.nanoTime();
+            long slot = Math.max(now, state.nextSlotNanos);
+            state.nextSlotNanos = slot + state.intervalNanos;
+            delay = slot - now;
+        }
+
+        try {
+            if (delay <= 0) {
+                executor.execute(task);
+            } else {
+                timer.schedule(() -> executeDelayed(host, task, executor, onRejected), delay, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            release(host);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Пул мог закрыться, пока задача ждала своего момента: место запроса тогда освобождается,
+     * иначе хост так и считался бы занятым, а вызывающий отпускает то, что занял под задачу.
+     */
+    private void executeDelayed(String host, Runnable task, Executor executor, Runnable onRejected) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            release(host);
+            onRejected.run();
+        }
+    }
+
+    /**
+     * Задаёт интервал между запросами к хосту; меньше общего интервала он не бывает.
+     */
+    public void setRequestInterval(String host, Duration interval) {
+        HostState state = hostState(host);
+        synchronized (state) {
+            state.intervalNanos = Math.max(requestIntervalNanos, interval.toNanos());
+        }
+    }
+
+    public void release(String host) {
+        HostState state = hosts.get(host);
+        if (state != null) {
+            synchronized (state) {
+                state.inFlight--;
+            }
+        }
+    }
+
+    public void shutdownNow() {
+        timer.shutdownNow();
+    }
+
+    private HostState hostState(String host) {
+        return hosts.computeIfAbsent(host, key -> new HostState(requestIntervalNanos));
+    }
+
+    private static class HostState {
+        private long nextSlotNanos;
+        private long intervalNanos;
+        private int inFlight;
+
+        private HostState(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package searchengine.worker;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.config.properties.IndexingProperties;
+import searchengine.model.Page;
+import searchengine.services.BulkIndexWriter;
+import searchengine.services.CrawlCheckpointService;
+import searchengine.services.PageReindexService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер индексации: загруженная страница сразу лемматизируется и уходит
+ * в очередь записи, а отдельный поток пишет страницы, леммы и индекс в базу пачками.
+ * Число страниц между загрузкой и записью ограничено, поэтому краулер
+ * не начинает новую загрузку, пока запись не догонит.
+ * Сохранённые ранее страницы при повторном обходе пишутся поверх, а леммы и индекс
+ * меняются только на разницу; для неизменившихся страниц отмечается лишь факт обхода.
+ */
+@Slf4j
+public class IndexingPipeline {
+
+    private final BulkIndexWriter bulkIndexWriter;
+    private final CrawlCheckpointService checkpointService;
+    private final PageReindexService pageReindexService;
+    private final PageIndexingWorker pageIndexingWorker;
+    private final LemmaFrequencyAggregator lemmaFrequencies;
+
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final Semaphore capacity;
+    private final BlockingQueue<IndexedPage> writeQueue;
+    private final List<Runnable> capacityListeners = new CopyOnWriteArrayList<>();
+
+    private final Thread writerThread;
+    private volatile boolean closing;
+    private volatile boolean stopped;
+
+    private long writtenPages;
+    private long writtenRows;
+    private long writeNanos;
+
+    public IndexingPipeline(IndexingProperties properties, BulkIndexWriter bulkIndexWriter,
+                            CrawlCheckpointService checkpointService, PageReindexService pageReindexService,
+                            PageIndexingWorker pageIndexingWorker) {
+        this.bulkIndexWriter = bulkIndexWriter;
+        this.checkpointService = checkpointService;
+        this.pageReindexService = pageReindexService;
+        this.pageIndexingWorker = pageIndexingWorker;
+        this.lemmaFrequencies = new LemmaFrequencyAggregator(bulkIndexWriter,
+                properties.getLemmaFlushInterval().toNanos());
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.capacity = new Semaphore(properties.getPipelineCapacity());
+        this.writeQueue = new LinkedBlockingQueue<>(properties.getPipelineCapacity());
+        this.writerThread = new Thread(this::writeLoop, "indexing-writer");
+    }
+
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Резервирует место под одну страницу. Краулер вызывает его перед загрузкой.
+     */
+    public boolean tryReserve() {
+        return capacity.tryAcquire();
+    }
+
+    /**
+     * Отменяет резервирование, не оповещая слушателей.
+     */
+    public void cancelReservation() {
+        capacity.release();
+    }
+
+    /**
+     * Освобождает место и даёт краулерам продолжить загрузку.
+     */
+    public void release() {
+        capacity.release();
+        capacityListeners.forEach(Runnable::run);
+    }
+
+    public void addCapacityListener(Runnable listener) {
+        capacityListeners.add(listener);
+    }
+
+    /**
+     * Лемматизирует страницу в текущем потоке и ставит её в очередь записи.
+     * После записи в базу вызывается onWritten и место в конвейере освобождается.
+     */
+    public void submit(Page page, Runnable onWritten) {
+        Map<String, Integer> lemmaRanks = pageIndexingWorker.findLemmaRanks(page);
+        enqueue(new IndexedPage(page, lemmaRanks, false, onWritten));
+    }
+
+    /**
+     * Ставит в очередь страницу, которая не изменилась с прошлой индексации:
+     * она не лемматизируется, в базе обновляются только её валидаторы.
+     */
+    public void submitUnchanged(Page page, Runnable onWritten) {
+        enqueue(new IndexedPage(page, Map.of(), true, onWritten));
+    }
+
+    private void enqueue(IndexedPage indexedPage) {
+        if (!writeQueue.offer(indexedPage)) {
+            throw new IllegalStateException("Очередь записи переполнена");
+        }
+    }
+
+    /**
+     * Дописывает всё, что уже в очереди, и останавливает поток записи.
+     */
+    public void close() {
+        closing = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Indexing pipeline closed: {} pages, {} rows written, {} rows/s", writtenPages, writtenRows,
+                rowsPerSecond(writtenRows, writeNanos));
+    }
+
+    public void stop() {
+        stopped = true;
+        writerThread.interrupt();
+    }
+
+    private void writeLoop() {
+        List<IndexedPage> batch = new ArrayList<>(batchSize);
+        try {
+            while (!stopped && !(closing && writeQueue.isEmpty())) {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    IndexedPage indexedPage = writeQueue.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                    if (indexedPage == null) {
+                        break;
+                    }
+                    batch.add(indexedPage);
+                    writeQueue.drainTo(batch, batchSize - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+                flushFrequencies(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushFrequencies(true);
+        }
+    }
+
+    private void flushFrequencies(boolean force) {
+        try {
+            if (force) {
+                lemmaFrequencies.flush();
+            } else {
+                lemmaFrequencies.flushIfDue();
+            }
+        } catch (Exception e) {
+            log.error("Ошибка записи частот лемм: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Новые страницы пишутся одной пачкой, изменившиеся - каждая в своей транзакции по разнице лемм.
+     * Страница отмечается пройденной только после записи, иначе продолженный после сбоя обход её бы не повторил.
+     * Не записанная страница остаётся не пройденной, и удаление пропавших страниц её не трогает.
+     */
+    private void write(List<IndexedPage> batch) {
+        long start = System.nanoTime();
+        List<Page> newPages = new ArrayList<>(batch.size());
+        List<Map<String, Integer>> newPageRanks = new ArrayList<>(batch.size());
+        List<Page> unchanged = new ArrayList<>();
+        List<Page> done = new ArrayList<>(batch.size());
+        long rows = 0;
+        int inserted = 0;
+        int changed = 0;
+
+        for (IndexedPage indexedPage : batch) {
+            if (indexedPage.unchanged) {
+                unchanged.add(indexedPage.page);
+            } else if (indexedPage.page.getId() == null) {
+                newPages.add(indexedPage.page);
+                newPageRanks.add(indexedPage.lemmaRanks);
+            } else if (reindex(indexedPage.page, indexedPage.lemmaRanks)) {
+                done.add(indexedPage.page);
+                rows += 1 + indexedPage.lemmaRanks.size();
+                changed++;
+            }
+        }
+
+        try {
+            if (!newPages.isEmpty()) {
+                BulkIndexWriter.WriteResult result = writeNewPages(newPages, newPageRanks);
+                rows += result.getRows();
+                newPages.stream().filter(page -> page.getId() != null).forEach(done::add);
+                inserted = done.size() - changed;
+                //--------------Путь уже записан параллельным indexPage или прошлым обходом: пишу поверх--------------
+                for (int i : result.getConflicts()) {
+                    if (reindex(newPages.get(i), newPageRanks.get(i))) {
+                        done.add(newPages.get(i));
+                        rows += 1 + newPageRanks.get(i).size();
+                        changed++;
+                    }
+                }
+            }
+            if (!unchanged.isEmpty()) {
+                pageReindexService.updateValidators(unchanged);
+                done.addAll(unchanged);
+            }
+            checkpointService.markDone(done);
+        } catch (Exception e) {
+            log.error("Ошибка записи пачки страниц: {}", e.getMessage());
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        writtenPages += done.size() - unchanged.size();
+        writtenRows += rows;
+        writeNanos += elapsedNanos;
+        log.info("written {} new, {} changed, {} unchanged pages, {} rows: {}ms, {} rows/s", inserted, changed,
+                unchanged.size(), rows, elapsedNanos / 1_000_000, rowsPerSecond(rows, elapsedNanos));
+
+        for (IndexedPage indexedPage : batch) {
+            release();
+            indexedPage.onWritten.run();
+        }
+    }
+
+    private boolean reindex(Page page, Map<String, Integer> lemmaRanks) {
+        //--------------Разница лемм считается от частот в базе, поэтому накопленное пишу сразу--------------
+        flushFrequencies(true);
+        try {
+            pageReindexService.reindex(page, lemmaRanks);
+            return true;
+        } catch (Exception e) {
+            log.error("Ошибка записи страницы {}: {}", page.getPath(), e.getMessage());
+            return false;
+        }
+    }
+
+    private BulkIndexWriter.WriteResult writeNewPages(List<Page> pages, List<Map<String, Integer>> lemmaRanks) {
+        BulkIndexWriter.WriteResult result;
+        try {
+            result = bulkIndexWriter.write(pages, lemmaRanks, lemmaFrequencies::resolve);
+            lemmaFrequencies.commit();
+        } catch (RuntimeException e) {
+            //--------------Транзакция откатилась, идентификаторы из RETURNING и новые леммы недействительны--------------
+            pages.forEach(page -> page.setId(null));
+            lemmaFrequencies.rollback();
+            throw e;
+        }
+        for (int i = 0; i < pages.size(); i++) {
+            if (pages.get(i).getId() != null) {
+                lemmaFrequencies.addPage(pages.get(i).getSite().getId(), lemmaRanks.get(i).keySet());
+            }
+        }
+        return result;
+    }
+
+    private static long rowsPerSecond(long rows, long nanos) {
+        return nanos == 0 ? 0 : rows * 1_000_000_000L / nanos;
+    }
+
+    private static class IndexedPage {
+        private final Page page;
+        private final Map<String, Integer> lemmaRanks;
+        private final boolean unchanged;
+        private final Runnable onWritten;
+
+        private IndexedPage(Page page, Map<String, Integer> lemmaRanks, boolean unchanged, Runnable onWritten) {
+            this.page = page;
+            this.lemmaRanks = lemmaRanks;
+            this.unchanged = unchanged;
+            this.onWritten = onWritten;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package searchengine.worker;
+
+import searchengine.model.PageFingerprint;
+import searchengine.services.PageService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Страницы сайта, сохранённые прошлой индексацией. При инкрементальном обходе по ним
+ * отправляются условные запросы, а ссылки неизменившихся страниц берутся из сохранённого содержимого.
+ */
+public class KnownPages {
+
+    private static final KnownPages EMPTY = new KnownPages(List.of(), null);
+
+    private final Map<String, PageFingerprint> fingerprints;
+
+    private final PageService pageService;
+
+    public KnownPages(List<PageFingerprint> fingerprints, PageService pageService) {
+        this.fingerprints = new HashMap<>(fingerprints.size() * 2);
+        fingerprints.forEach(fingerprint -> this.fingerprints.put(fingerprint.getPath(), fingerprint));
+        this.pageService = pageService;
+    }
+
+    public static KnownPages empty() {
+        return EMPTY;
+    }
+
+    public PageFingerprint get(String path) {
+        return fingerprints.get(path);
+    }
+
+    public String loadContent(PageFingerprint fingerprint) {
+        return pageService.findContentById(fingerprint.getId());
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+}
@@ -0,0 +1,116 @@
+package searchengine.worker;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.services.BulkIndexWriter;
+import searchengine.utils.LongIntCounter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Частоты лемм одного запуска индексации. Идентификаторы лемм запоминаются по сайтам,
+ * поэтому уже встречавшаяся лемма больше не запрашивается из базы, а приращения частот
+ * копятся по идентификатору и записываются в базу редко, одним запросом.
+ * Запомненные идентификаторы остаются верными весь запуск: леммы заводятся в транзакции записи страниц
+ * и забываются при её откате, а леммы с нулевой частотой удаляются только после обхода.
+ * Используется только потоком записи конвейера.
+ */
+@Slf4j
+public class LemmaFrequencyAggregator {
+
+    private final BulkIndexWriter bulkIndexWriter;
+
+    private final long flushIntervalNanos;
+
+    private final Map<Long, Map<String, Long>> lemmaIds = new HashMap<>();
+
+    private final Map<Long, List<String>> uncommittedLemmas = new HashMap<>();
+
+    private final LongIntCounter pendingFrequencies = new LongIntCounter(16_384);
+
+    private long lastFlushNanos = System.nanoTime();
+
+    private long flushedLemmas;
+
+    public LemmaFrequencyAggregator(BulkIndexWriter bulkIndexWriter, long flushIntervalNanos) {
+        this.bulkIndexWriter = bulkIndexWriter;
+        this.flushIntervalNanos = flushIntervalNanos;
+    }
+
+    /**
+     * Заводит в базе леммы сайтов, которых ещё нет среди известных. Вызывается внутри транзакции записи,
+     * заведённые леммы считаются известными после {@link #commit()}.
+     *
+     * @return идентификаторы всех известных лемм по сайтам
+     */
+    public Map<Long, Map<String, Long>> resolve(Map<Long, Set<String>> lemmasBySite) {
+        lemmasBySite.forEach((siteId, lemmas) -> {
+            Map<String, Long> siteLemmaIds = lemmaIds.computeIfAbsent(siteId, id -> new HashMap<>());
+            List<String> unknown = new ArrayList<>();
+            for (String lemma : lemmas) {
+                if (!siteLemmaIds.containsKey(lemma)) {
+                    unknown.add(lemma);
+                }
+            }
+            if (!unknown.isEmpty()) {
+                siteLemmaIds.putAll(bulkIndexWriter.insertLemmas(siteId, unknown));
+                uncommittedLemmas.computeIfAbsent(siteId, id -> new ArrayList<>()).addAll(unknown);
+            }
+        });
+        return lemmaIds;
+    }
+
+    public void commit() {
+        uncommittedLemmas.clear();
+    }
+
+    /**
+     * Транзакция записи откатилась вместе с заведёнными в ней леммами: их идентификаторы недействительны.
+     */
+    public void rollback() {
+        uncommittedLemmas.forEach((siteId, lemmas) -> lemmaIds.get(siteId).keySet().removeAll(lemmas));
+        uncommittedLemmas.clear();
+    }
+
+    /**
+     * Учитывает страницу, на которой встретились эти леммы: частота каждой растёт на единицу.
+     */
+    public void addPage(Long siteId, Collection<String> lemmas) {
+        Map<String, Long> siteLemmaIds = lemmaIds.get(siteId);
+        for (String lemma : lemmas) {
+            pendingFrequencies.add(siteLemmaIds.get(lemma), 1);
+        }
+    }
+
+    public void flushIfDue() {
+        if (System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        lastFlushNanos = System.nanoTime();
+        if (pendingFrequencies.isEmpty()) {
+            return;
+        }
+        long[] keys = pendingFrequencies.keys();
+        Long[] ids = new Long[keys.length];
+        Integer[] deltas = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = keys[i];
+            deltas[i] = pendingFrequencies.get(keys[i]);
+        }
+        bulkIndexWriter.addFrequencies(ids, deltas);
+        flushedLemmas += keys.length;
+        log.info("flushed frequencies of {} lemmas: {}ms", keys.length, (System.nanoTime() - lastFlushNanos) / 1_000_000);
+        pendingFrequencies.clear();
+    }
+
+    public long getFlushedLemmas() {
+        return flushedLemmas;
+    }
+}
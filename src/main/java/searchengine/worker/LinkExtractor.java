@@ -0,0 +1,65 @@
+package searchengine.worker;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.utils.UrlCanonicalizer;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Достаёт ссылки страницы одного сайта: абсолютный адрес берётся из атрибута href
+ * с учётом базового адреса документа и сразу приводится к каноническому виду.
+ */
+public class LinkExtractor {
+
+    private final UrlCanonicalizer canonicalizer;
+
+    private final String headAddress;
+
+    /**
+     * @param headAddress адрес сайта со схемой, без завершающего слэша
+     */
+    public LinkExtractor(CrawlerProperties properties, String headAddress) {
+        this.canonicalizer = new UrlCanonicalizer(properties.getExcludedExtensions(), properties.getExcludedUrlParts(),
+                properties.getIgnoredQueryParameters(), properties.isKeepQueryStrings());
+        this.headAddress = headAddress.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return канонические адреса страниц того же сайта, без повторов и без главной страницы
+     */
+    public Set<String> extract(Document doc) {
+        Set<String> links = new LinkedHashSet<>();
+        for (Element anchor : doc.select("a[href]")) {
+            String link = canonicalize(anchor.absUrl("href"));
+            if (link != null) {
+                links.add(link);
+            }
+        }
+        return links;
+    }
+
+    /**
+     * @return канонический адрес страницы сайта или null, если адрес чужой, исключён или ведёт на главную
+     */
+    public String canonicalize(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        String canonical = canonicalizer.canonicalize(url);
+        if (canonical == null || !canonical.startsWith(headAddress + "/") || canonical.length() == headAddress.length() + 1) {
+            return null;
+        }
+        return canonical;
+    }
+
+    /**
+     * Путь страницы относительно сайта, в том виде, в каком он хранится в pages.path.
+     */
+    public String pathOf(String canonicalUrl) {
+        return canonicalUrl.substring(headAddress.length());
+    }
+}
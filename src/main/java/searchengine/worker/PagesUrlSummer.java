@@ -3,38 +3,71 @@ package searchengine.worker;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import searchengine.config.properties.CrawlerProperties;
 import searchengine.model.*;
-import searchengine.services.*;
+import searchengine.services.CrawlCheckpointService;
+import searchengine.services.PageFetchService;
+import searchengine.services.RobotsService;
+import searchengine.services.SitemapService;
+import searchengine.utils.ContentHash;
+import searchengine.utils.RobotsRules;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Slf4j
-public class PagesUrlSummer extends RecursiveTask<List<PageUrl>> {
-    private final PageService pageService;
-    private final SiteService siteService;
-    private final PageUrl address;
+public class PagesUrlSummer {
+    private final Site site;
+    private final PageUrl rootAddress;
     private String headAddress;
 
-    private static Set<String> addedUrls;
+    private final CrawlFrontier frontier;
+    private final CrawlerProperties properties;
+    private final HostPolitenessScheduler politenessScheduler;
+    private final Executor fetchExecutor;
+    private final Executor cpuExecutor;
+    private final IndexingPipeline pipeline;
+    private final CrawlCheckpointService checkpointService;
+    private final KnownPages knownPages;
+    private final PageFetchService pageFetchService;
+    private final RobotsService robotsService;
+    private final SitemapService sitemapService;
+    private final LinkExtractor linkExtractor;
+
+    private volatile RobotsRules robotsRules = RobotsRules.ALLOW_ALL;
+
+    private final LongAdder indexedPages = new LongAdder();
+    private final LongAdder unchangedPages = new LongAdder();
+    private final LongAdder failedPages = new LongAdder();
+    private final CompletableFuture<CrawlSummary> result = new CompletableFuture<>();
+
+    private int inFlight;
+    private volatile boolean stopped;
+
+    private static final Pattern HTTPS_PATTERN = Pattern.compile("https?://[^/]+");
+
+    public PagesUrlSummer(PageUrl address, Site site, KnownPages knownPages, CrawlContext context) {
+        this.site = site;
+        this.knownPages = knownPages;
+        this.properties = context.getProperties();
+        this.pipeline = context.getPipeline();
+        this.checkpointService = context.getCheckpointService();
+        this.pageFetchService = context.getPageFetchService();
+        this.robotsService = context.getRobotsService();
+        this.sitemapService = context.getSitemapService();
+        this.politenessScheduler = context.getPolitenessScheduler();
+        this.fetchExecutor = context.getExecutors().getFetchExecutor();
+        this.cpuExecutor = context.getExecutors().getCpuPool();
+        this.frontier = new CrawlFrontier(site.getId(), context.getCheckpointService(), properties, fetchExecutor,
+                this::dispatch);
 
-    private final Site parentSite;
-
-    private static final Pattern HTTPS_PATTERN = Pattern.compile("https://[^/]+");
-    private static final Pattern RELATIVE_URL_PATTERN = Pattern.compile("/[a-z+]+[/A-z- \\d%#()+_.]*/([/a-z- \\d%#()+_.]*)*");
-    private static final Pattern FULL_URL_PATTERN = Pattern.compile("https://[a-z]+[.a-z]+[/A-z-\\d()]*/[/a-z-\\d()]*");
-
-    public PagesUrlSummer(PageUrl address, PageService pageService, SiteService siteService) {
-        this.pageService = pageService;
-        this.siteService = siteService;
-
-        parentSite = null;
         Matcher matcher = HTTPS_PATTERN.matcher(address.getAbsolutePath());
 
         while (matcher.find()) {
@@ -47,195 +80,300 @@ public class PagesUrlSummer extends RecursiveTask<List<PageUrl>> {
             address.setPath(address.getAbsolutePath());
         }
 
-        address.setHeadUrl(headAddress);
-        this.address = address;
-        addedUrls = ConcurrentHashMap.newKeySet();
+        this.rootAddress = address;
+        this.linkExtractor = new LinkExtractor(properties, headAddress);
     }
 
-    public PagesUrlSummer(PageUrl address, PageService pageService, SiteService siteService, String headAddress, Site parentSite) {
-        this.pageService = pageService;
-        this.siteService = siteService;
-        this.headAddress = headAddress;
-        this.parentSite = parentSite;
-        address.setHeadUrl(headAddress);
-        this.address = address;
+    /**
+     * @return итог обхода; сами адреса и страницы после записи в базу не хранятся
+     */
+    public CompletableFuture<CrawlSummary> start() {
+        pipeline.addCapacityListener(this::dispatch);
+        boolean resumed = frontier.restore();
+        synchronized (this) {
+            inFlight++;
+        }
+        try {
+            fetchExecutor.execute(() -> bootstrap(resumed));
+        } catch (RejectedExecutionException e) {
+            log.warn("Crawl of {} rejected: executor is shut down", headAddress);
+            stop();
+        }
+        return result;
     }
 
-    @Override
-    protected List<PageUrl> compute() {
-        List<PageUrl> urls = new ArrayList<>();
-
-        if (!connection()) {
-            return null;
-        }
+    public void stop() {
+        stopped = true;
+        result.cancel(false);
+    }
 
-        List<PagesUrlSummer> taskList = new ArrayList<>();
+    public CrawlFrontier getFrontier() {
+        return frontier;
+    }
 
-        Site site;
+    //--------------Отдаю в работу столько адресов, сколько разрешают планировщик хоста и конвейер--------------
+    private void dispatch() {
+        synchronized (this) {
+            while (!stopped && !frontier.isEmpty() && pipeline.tryReserve()) {
+                PageUrl next = frontier.poll();
+                if (next == null) {
+                    pipeline.cancelReservation();
+                    break;
+                }
+                boolean scheduled;
+                try {
+                    scheduled = politenessScheduler.trySchedule(headAddress, () -> fetch(next), fetchExecutor,
+                            this::abandonTask);
+                } catch (RejectedExecutionException e) {
+                    pipeline.cancelReservation();
+                    log.warn("Crawl of {} rejected: executor is shut down", headAddress);
+                    stop();
+                    return;
+                }
+                if (!scheduled) {
+                    pipeline.cancelReservation();
+                    frontier.pushBack(next);
+                    break;
+                }
+                inFlight++;
+            }
 
-        if (parentSite == null) {
-            site = siteService.findByUrl(headAddress);
-        } else {
-            site = parentSite;
+            if (inFlight == 0 && frontier.isEmpty() && !result.isDone()) {
+                CrawlSummary summary = new CrawlSummary(site.getUrl(), indexedPages.sum(), unchangedPages.sum(),
+                        failedPages.sum());
+                log.info("Crawl of {} finished: {} pages indexed, {} unchanged, {} failed", headAddress,
+                        summary.getIndexedPages(), summary.getUnchangedPages(), summary.getFailedPages());
+                result.complete(summary);
+            }
         }
+    }
 
-        Page page = new Page();
-        page.setSite(site);
-        page.setPath(address.getPath());
-        String addressContent = address.getContent();
-
-        page.setContent(addressContent);
-        page.setCode(200);
+    //--------------Читаю robots.txt и засеваю очередь адресами из sitemap--------------
+    private void bootstrap(boolean resumed) {
+        try {
+            robotsRules = robotsService.getRules(headAddress);
+            if (robotsRules.getCrawlDelay() != null) {
+                politenessScheduler.setRequestInterval(headAddress, robotsRules.getCrawlDelay());
+            }
+            if (!resumed) {
+                offer(List.of(rootAddress));
+                if (properties.isSitemapSeeding() && !stopped) {
+                    seedFromSitemaps();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Ошибка при подготовке обхода {}: {}", headAddress, e.getMessage());
+        } finally {
+            finishTask();
+        }
+    }
 
-        synchronized (pageService) {
-            pageService.save(page);
+    /**
+     * Недавно изменённые страницы ставятся в очередь первыми.
+     */
+    private void seedFromSitemaps() {
+        List<String> sitemapUrls = robotsRules.getSitemaps().isEmpty()
+                ? List.of(headAddress + "/sitemap.xml")
+                : robotsRules.getSitemaps();
+        List<SitemapEntry> entries = new ArrayList<>(sitemapService.collect(sitemapUrls, properties.getMaxPagesPerSite()));
+        entries.sort(Comparator.comparing(SitemapEntry::getLastModified, Comparator.nullsLast(Comparator.reverseOrder())));
+
+        List<PageUrl> seeds = new ArrayList<>(entries.size());
+        for (SitemapEntry entry : entries) {
+            String location = linkExtractor.canonicalize(entry.getLocation());
+            if (location != null) {
+                seeds.add(new PageUrl(location, linkExtractor.pathOf(location), 1));
+            }
         }
+        int accepted = offer(seeds);
+        log.info("Seeded crawl of {} with {} of {} sitemap urls", headAddress, accepted, entries.size());
+    }
 
-        log.info("added page {}", page.getPath());
+    /**
+     * Ставит в очередь адреса, которые robots.txt разрешает обходить.
+     */
+    private int offer(List<PageUrl> pageUrls) {
+        RobotsRules rules = robotsRules;
+        return frontier.offerAll(pageUrls.stream().filter(pageUrl -> rules.isAllowed(robotsPath(pageUrl))).toList());
+    }
 
-        urls.add(address);
+    private String robotsPath(PageUrl pageUrl) {
+        String path = pageUrl.getAbsolutePath().substring(Math.min(headAddress.length(), pageUrl.getAbsolutePath().length()));
+        return path.isEmpty() ? "/" : path;
+    }
 
-        for (PageUrl children : this.address.getChildren()) {
-            if (children != null) {
-                PagesUrlSummer task = new PagesUrlSummer(children, pageService, siteService, headAddress, site);
-                task.fork();
-                taskList.add(task);
+    //--------------Скачиваю страницу в потоке ввода-вывода, разбираю в пуле CPU--------------
+    private void fetch(PageUrl address) {
+        PageFingerprint known = knownPages.get(address.getPath());
+        FetchedPage response = null;
+        boolean unreachable = false;
+        try {
+            if (!stopped) {
+                response = pageFetchService.fetch(address.getAbsolutePath(), known);
             }
+        } catch (IOException | UncheckedIOException e) {
+            unreachable = true;
+            log.warn("{} address: {}", e.getMessage(), address.getAbsolutePath());
+        } finally {
+            politenessScheduler.release(headAddress);
+        }
+        if (response != null && !response.isAccepted() && !response.isRemoved()) {
+            unreachable = true;
+            log.warn("{} address: {}", response.getRejectReason(), address.getAbsolutePath());
         }
 
-        for (PagesUrlSummer task : taskList) {
-            if (task != null) {
-                try {
-                    List<PageUrl> result = task.join();
-                    if (result != null) {
-                        urls.addAll(result);
-                    }
-                } catch (Exception e) {
-                    log.error("Ошибка при выполнении задачи: {0}", e);
-                }
+        //--------------Не изменилась или временно недоступна: оставляю сохранённую версию,--------------
+        //--------------удаляется она только при 404/410 или если страница перестала быть HTML--------------
+        if (known != null && (unreachable || response != null && response.isNotModified())) {
+            keepUnchanged(address, known, response);
+            return;
+        }
+
+        if (response != null && !response.isAccepted()) {
+            log.info("Skipped {}: {}", address.getAbsolutePath(), response.getRejectReason());
+            if (known != null) {
+                markRemoved(address);
             }
+            response = null;
+        }
+
+        if (response == null) {
+            abandonTask();
+            return;
         }
 
-        return urls;
+        FetchedPage fetched = response;
+        try {
+            cpuExecutor.execute(() -> process(address, fetched));
+        } catch (RejectedExecutionException e) {
+            abandonTask();
+        }
     }
 
+    /**
+     * Сохранённая страница удаляется по окончании обхода. Если отметить не удалось, она просто останется.
+     */
+    private void markRemoved(PageUrl address) {
+        try {
+            checkpointService.markRemoved(site.getId(), address.getPath());
+        } catch (Exception e) {
+            log.warn("Failed to mark {} as removed: {}", address.getAbsolutePath(), e.getMessage());
+        }
+    }
 
-    private boolean connection() {
-        //--------------Подключаюсь--------------
+    private void process(PageUrl address, FetchedPage response) {
+        boolean submitted = false;
         try {
-            Thread.sleep(200);
-
-            Document doc = Jsoup.connect(address.getAbsolutePath())
-                    .userAgent("HeliontSearchBot/1.0")
-                    .referrer("http://www.google.com")
-                    .timeout(100000)
-                    .get();
-
-            this.address.setContent(doc.toString());
-            Elements element = doc.select("a");
-            //--------------Ищу детей--------------
-            for (Element el : element) {
-                String addressChildren = el.toString();
-                //--------------Фильтрую адреса--------------
-                if (urlFilter(addressChildren)) {
-                    continue;
-                }
+            PageFingerprint known = knownPages.get(address.getPath());
+            String contentHash = ContentHash.of(response.getBody());
+            Document doc = pageFetchService.parse(response);
+            offer(findChildren(address, doc));
+
+            if (known != null && contentHash.equals(known.getContentHash())) {
+                pipeline.submitUnchanged(unchangedPage(address, known, response), () -> {
+                    unchangedPages.increment();
+                    finishTask();
+                });
+                submitted = true;
+                return;
+            }
 
-                if (addressChildren.contains("href=\"")) {
-                    if (addressChildren.contains("https://") || addressChildren.contains("http://")) {
-                        Matcher matcher = FULL_URL_PATTERN.matcher(addressChildren);
-                        while (matcher.find()) {
-                            int start = matcher.start();
-                            int end = matcher.end();
-                            if (addressChildren.charAt(end - 1) == '/') {
-                                addressChildren = addressChildren.substring(start, end - 1);
-                            } else {
-                                addressChildren = addressChildren.substring(start, end);
-                            }
-                            //--------------Проверка уникальности адреса--------------
-                            if (addedUrls.contains(addressChildren)) {
-                                break;
-                            }
-                            addChildren(addressChildren, headAddress);
-
-                            break;
-
-                        }
-                    } else {
-                        Matcher matcher = RELATIVE_URL_PATTERN.matcher(addressChildren);
-                        while (matcher.find()) {
-                            int start = matcher.start();
-                            int end = matcher.end();
-                            addressChildren = addressChildren.substring(start + 1, end);
-                            addressChildren = deleteEndsSlash(addressChildren);
-                            //--------------Проверка уникальности адреса-------------
-                            if (addedUrls.contains("/" + addressChildren)) {
-                                break;
-                            }
-                            addressChildren = headAddress + "/" + addressChildren;
-                            addChildren(addressChildren, headAddress);
-                            break;
-                        }
-                    }
-                }
+            Page page = new Page();
+            page.setId(known == null ? null : known.getId());
+            page.setSite(site);
+            page.setPath(address.getPath());
+            page.setContent(doc.toString());
+            page.setCode(200);
+            page.setEtag(response.getEtag());
+            page.setLastModified(response.getLastModified());
+            page.setContentHash(contentHash);
+
+            pipeline.submit(page, () -> {
+                indexedPages.increment();
+                finishTask();
+            });
+            submitted = true;
+        } catch (Exception e) {
+            log.error("Ошибка при обходе страницы {}: {}", address.getAbsolutePath(), e.getMessage());
+        } finally {
+            if (!submitted) {
+                abandonTask();
             }
-        } catch (IOException | InterruptedException e) {
-            System.out.println(e.getMessage() + " address: " + this.address.getAbsolutePath() + " parent: " + this.address.getParent().getAbsolutePath());
-            return false;
         }
-
-        return true;
     }
 
-    private void addChildren(String addressChildren, String headAddress) {
-        //--------------Проверка не улетел ли я на левый сайт--------------
-        String currentHeadAddress = getHeadAddress(addressChildren);
+    //--------------Ссылки неизменившейся страницы беру из сохранённого содержимого--------------
+    private void keepUnchanged(PageUrl address, PageFingerprint known, FetchedPage response) {
+        String content;
+        try {
+            content = knownPages.loadContent(known);
+        } catch (Exception e) {
+            log.error("Не удалось прочитать сохранённую страницу {}: {}", address.getAbsolutePath(), e.getMessage());
+            content = null;
+        }
+        if (content == null) {
+            abandonTask();
+            return;
+        }
 
-        //--------------Инициализация нового ребенка--------------
-        if (headAddress.equals(currentHeadAddress) && !urlFilter(addressChildren)) {
-            PageUrl newChildrenAddress = new PageUrl();
-            newChildrenAddress.setChildren(new ArrayList<>());
-            newChildrenAddress.setAbsolutePath(addressChildren + "/");
-            newChildrenAddress.setParent(this.address);
-            newChildrenAddress.setPath(addressChildren.replace(headAddress, ""));
-            newChildrenAddress.setHeadUrl(headAddress);
+        String storedContent = content;
+        Page page = unchangedPage(address, known, response);
+        try {
+            cpuExecutor.execute(() -> processUnchanged(address, page, storedContent));
+        } catch (RejectedExecutionException e) {
+            abandonTask();
+        }
+    }
 
-            //--------------Добавление нового ребенка--------------
-            if (!newChildrenAddress.getAbsolutePath().isBlank()) {
-                addedUrls.add(newChildrenAddress.getPath());
-                List<PageUrl> children = address.getChildren();
-                children.add(newChildrenAddress);
-                address.setChildren(children);
+    private void processUnchanged(PageUrl address, Page page, String content) {
+        boolean submitted = false;
+        try {
+            offer(findChildren(address, Jsoup.parse(content, address.getAbsolutePath())));
+
+            pipeline.submitUnchanged(page, () -> {
+                unchangedPages.increment();
+                finishTask();
+            });
+            submitted = true;
+        } catch (Exception e) {
+            log.error("Ошибка при обходе страницы {}: {}", address.getAbsolutePath(), e.getMessage());
+        } finally {
+            if (!submitted) {
+                abandonTask();
             }
         }
     }
 
-    private boolean urlFilter(String address) {
-        return address.contains("Instagram") || address.contains(".jpg") ||
-                address.contains(".sql") ||
-                address.contains(".png") || address.contains("tilda/click")
-                || address.contains(".pdf") || address.contains(".svg");
+    private Page unchangedPage(PageUrl address, PageFingerprint known, FetchedPage response) {
+        Page page = new Page();
+        page.setId(known.getId());
+        page.setSite(site);
+        page.setPath(address.getPath());
+        page.setEtag(response != null && response.getEtag() != null ? response.getEtag() : known.getEtag());
+        page.setLastModified(response != null && response.getLastModified() != null
+                ? response.getLastModified() : known.getLastModified());
+        return page;
     }
 
-    private String getHeadAddress(String address) {
-        String currentHeadAddress = "";
-        Matcher matcher = HTTPS_PATTERN.matcher(address);
-        while (matcher.find()) {
-            int start = matcher.start();
-            int end = matcher.end();
-
-            currentHeadAddress = address.substring(start, end);
+    private void abandonTask() {
+        failedPages.increment();
+        pipeline.release();
+        finishTask();
+    }
 
-            break;
+    private void finishTask() {
+        synchronized (this) {
+            inFlight--;
         }
-        return currentHeadAddress;
+        dispatch();
     }
 
-    private String deleteEndsSlash(String address) {
-        while (address.endsWith("/")) {
-            address = address.substring(0, address.length() - 1);
+    //--------------Ищу детей--------------
+    private List<PageUrl> findChildren(PageUrl address, Document doc) {
+        List<PageUrl> children = new ArrayList<>();
+        for (String link : linkExtractor.extract(doc)) {
+            children.add(new PageUrl(link, linkExtractor.pathOf(link), address.getDepth() + 1));
         }
-
-        return address;
+        return children;
     }
 }
@@ -0,0 +1,103 @@
+package searchengine.worker;
+
+import searchengine.model.PageUrl;
+import searchengine.services.CrawlCheckpointService;
+import searchengine.utils.LruCache;
+import searchengine.utils.ScalableBloomFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Множество уже встреченных путей одного сайта. Пути хранятся в виде 64-битных
+ * отпечатков в масштабируемом фильтре Блума; если фильтр отвечает «возможно было»,
+ * а пути нет среди недавно встреченных, ответ уточняется по таблице crawl_frontier.
+ */
+public class SeenUrlSet {
+
+    private final Long siteId;
+
+    private final CrawlCheckpointService checkpointService;
+
+    private final ScalableBloomFilter filter;
+
+    private final LruCache<String, Boolean> recentPaths;
+
+    private long exactChecks;
+
+    private long falsePositives;
+
+    public SeenUrlSet(Long siteId, CrawlCheckpointService checkpointService, int initialCapacity,
+                      double falsePositiveRate, int recentPathsCacheSize) {
+        this.siteId = siteId;
+        this.checkpointService = checkpointService;
+        this.filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+        this.recentPaths = new LruCache<>(recentPathsCacheSize, 1);
+    }
+
+    public synchronized long restore() {
+        checkpointService.forEachPath(siteId, path -> filter.put(ScalableBloomFilter.fingerprint(path)));
+        return filter.size();
+    }
+
+    /**
+     * Оставляет только пути, которые ещё не встречались, и запоминает их как встреченные.
+     */
+    public synchronized List<PageUrl> retainUnseen(List<PageUrl> pageUrls) {
+        List<PageUrl> unseen = new ArrayList<>();
+        List<PageUrl> suspected = new ArrayList<>();
+
+        for (PageUrl pageUrl : pageUrls) {
+            long fingerprint = ScalableBloomFilter.fingerprint(pageUrl.getPath());
+            if (!filter.mightContain(fingerprint)) {
+                markSeen(pageUrl.getPath(), fingerprint);
+                unseen.add(pageUrl);
+            } else if (recentPaths.get(pageUrl.getPath()) == null) {
+                suspected.add(pageUrl);
+            }
+        }
+
+        if (!suspected.isEmpty()) {
+            Set<String> existingPaths = checkpointService.findExistingPaths(siteId,
+                    suspected.stream().map(PageUrl::getPath).toList());
+            exactChecks += suspected.size();
+
+            for (PageUrl pageUrl : suspected) {
+                String path = pageUrl.getPath();
+                if (existingPaths.contains(path)) {
+                    recentPaths.put(path, Boolean.TRUE);
+                } else if (recentPaths.get(path) == null) {
+                    falsePositives++;
+                    markSeen(path, ScalableBloomFilter.fingerprint(path));
+                    unseen.add(pageUrl);
+                }
+            }
+        }
+        return unseen;
+    }
+
+    public synchronized long size() {
+        return filter.size();
+    }
+
+    public synchronized long memoryBytes() {
+        return filter.memoryBytes();
+    }
+
+    public synchronized double estimatedFalsePositiveRate() {
+        return filter.estimatedFalsePositiveRate();
+    }
+
+    /**
+     * Доля проверок по базе, в которых фильтр ошибся.
+     */
+    public synchronized double observedFalsePositiveRate() {
+        return exactChecks == 0 ? 0.0 : (double) falsePositives / exactChecks;
+    }
+
+    private void markSeen(String path, long fingerprint) {
+        filter.put(fingerprint);
+        recentPaths.put(path, Boolean.TRUE);
+    }
+}
@@ -0,0 +1,13 @@
+CREATE TABLE crawl_frontier
+(
+    id      BIGSERIAL PRIMARY KEY,
+    site_id BIGINT      NOT NULL,
+    url     TEXT        NOT NULL,
+    path    TEXT        NOT NULL,
+    depth   INT         NOT NULL,
+    status  VARCHAR(16) NOT NULL,
+    CONSTRAINT fk_crawl_frontier_site FOREIGN KEY (site_id) REFERENCES sites (id) ON DELETE CASCADE,
+    CONSTRAINT uq_crawl_frontier_site_path UNIQUE (site_id, path)
+);
+
+CREATE INDEX idx_crawl_frontier_site_status ON crawl_frontier (site_id, status, id);
@@ -0,0 +1,10 @@
+ALTER TABLE pages
+    ADD COLUMN etag          VARCHAR(255),
+    ADD COLUMN last_modified VARCHAR(64),
+    ADD COLUMN content_hash  VARCHAR(64);
+
+CREATE INDEX idx_pages_site_path ON pages (site_id, path);
+
+CREATE INDEX idx_indexes_page ON indexes (page_id);
+
+CREATE INDEX idx_lemmas_site_lemma ON lemmas (site_id, lemma);
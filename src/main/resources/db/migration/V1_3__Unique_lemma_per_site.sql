@@ -0,0 +1,29 @@
+-- Дубликаты лемм сайта, оставшиеся от построчной записи, сливаются в лемму с наименьшим id
+WITH duplicates AS (
+    SELECT id, min(id) OVER (PARTITION BY site_id, lemma) AS keep_id
+    FROM lemmas
+)
+UPDATE indexes
+SET lemma_id = duplicates.keep_id
+FROM duplicates
+WHERE indexes.lemma_id = duplicates.id
+  AND duplicates.id <> duplicates.keep_id;
+
+UPDATE lemmas
+SET frequency = merged.frequency
+FROM (SELECT min(id) AS keep_id, sum(frequency) AS frequency
+      FROM lemmas
+      GROUP BY site_id, lemma
+      HAVING count(*) > 1) merged
+WHERE lemmas.id = merged.keep_id;
+
+DELETE
+FROM lemmas duplicate
+    USING lemmas kept
+WHERE duplicate.site_id = kept.site_id
+  AND duplicate.lemma = kept.lemma
+  AND duplicate.id > kept.id;
+
+DROP INDEX idx_lemmas_site_lemma;
+
+CREATE UNIQUE INDEX uq_lemmas_site_lemma ON lemmas (site_id, lemma);
@@ -0,0 +1,19 @@
+-- Идентификаторы выдаются из последовательностей блоками по 50 (allocationSize в сущностях),
+-- чтобы Hibernate мог пакетировать вставки. Шаг последовательности должен совпадать с IdGeneration.ALLOCATION_SIZE.
+-- При шаге 50 вставки мимо Hibernate расходуют номера в 50 раз быстрее, поэтому ключи переводятся в BIGINT.
+
+ALTER TABLE sites ALTER COLUMN id TYPE BIGINT;
+ALTER SEQUENCE sites_id_seq AS BIGINT INCREMENT BY 50;
+SELECT setval('sites_id_seq', (SELECT COALESCE(max(id), 0) FROM sites) + 50);
+
+ALTER TABLE pages ALTER COLUMN id TYPE BIGINT;
+ALTER SEQUENCE pages_id_seq AS BIGINT INCREMENT BY 50;
+SELECT setval('pages_id_seq', (SELECT COALESCE(max(id), 0) FROM pages) + 50);
+
+ALTER TABLE lemmas ALTER COLUMN id TYPE BIGINT;
+ALTER SEQUENCE lemmas_id_seq AS BIGINT INCREMENT BY 50;
+SELECT setval('lemmas_id_seq', (SELECT COALESCE(max(id), 0) FROM lemmas) + 50);
+
+ALTER TABLE indexes ALTER COLUMN id TYPE BIGINT;
+ALTER SEQUENCE indexes_id_seq AS BIGINT INCREMENT BY 50;
+SELECT setval('indexes_id_seq', (SELECT COALESCE(max(id), 0) FROM indexes) + 50);
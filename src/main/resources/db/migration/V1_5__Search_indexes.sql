@@ -0,0 +1,23 @@
+-- Индексы под пути доступа поиска и индексации.
+-- Уже есть: uq_lemmas_site_lemma (site_id, lemma), idx_pages_site_path (site_id, path), idx_indexes_page (page_id).
+-- Обычный CREATE INDEX держит блокировку SHARE на таблицу всё время построения: чтение идёт,
+-- а вставки, изменения и удаления ждут. На заполненной базе миграцию нужно проводить при остановленной
+-- индексации. CONCURRENTLY здесь не используется: следующая миграция V1_6 всё равно переносит
+-- эти таблицы в секционированные целиком и строит индексы заново.
+
+-- Сайт ищется по адресу при поиске по леммам сайта и перед каждой индексацией
+CREATE INDEX idx_sites_url ON sites (url);
+
+-- Строки индекса леммы: EAGER-загрузка Lemma.indexes и каскадное удаление лемм.
+-- rank включён в индекс, чтобы ранжирование читало только индекс
+CREATE INDEX idx_indexes_lemma_page ON indexes (lemma_id, page_id) INCLUDE (rank);
+
+-- Строки индекса страницы: каскадное удаление страниц сайта и сравнение лемм при переиндексации.
+-- Заменяет idx_indexes_page и тоже покрывает запрос целиком
+CREATE INDEX idx_indexes_page_lemma ON indexes (page_id, lemma_id) INCLUDE (rank);
+
+DROP INDEX idx_indexes_page;
+
+-- Леммы и страницы сайта при его удалении находятся по ведущему site_id
+-- в uq_lemmas_site_lemma и idx_pages_site_path, отдельные индексы по site_id не нужны.
+-- crawl_frontier по site_id покрыт idx_crawl_frontier_site_status.
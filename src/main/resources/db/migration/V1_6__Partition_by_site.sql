@@ -0,0 +1,104 @@
+-- pages, lemmas и indexes секционируются по site_id, чтобы сброс сайта был удалением его секций,
+-- а не построчным каскадным удалением. Секции сайтов создаёт SitePartitionService,
+-- строки сайтов без своих секций попадают в секции по умолчанию.
+-- Первичный ключ секционированной таблицы обязан включать site_id, поэтому в indexes появляется site_id,
+-- а внешние ключи между pages, lemmas и indexes убираются: строки индекса удаляются вместе со страницами явно.
+-- Строки без сайта ни к чему не относятся и не переносятся.
+
+ALTER SEQUENCE pages_id_seq OWNED BY NONE;
+ALTER SEQUENCE lemmas_id_seq OWNED BY NONE;
+ALTER SEQUENCE indexes_id_seq OWNED BY NONE;
+
+ALTER TABLE indexes RENAME TO indexes_old;
+ALTER TABLE lemmas RENAME TO lemmas_old;
+ALTER TABLE pages RENAME TO pages_old;
+
+DROP INDEX idx_path, idx_pages_site_path, uq_lemmas_site_lemma, idx_indexes_lemma_page, idx_indexes_page_lemma;
+
+CREATE TABLE pages
+(
+    id            BIGINT       NOT NULL DEFAULT nextval('pages_id_seq'),
+    site_id       BIGINT       NOT NULL,
+    path          VARCHAR(255) NOT NULL,
+    code          INT          NOT NULL,
+    content       TEXT         NOT NULL,
+    etag          VARCHAR(255),
+    last_modified VARCHAR(64),
+    content_hash  VARCHAR(64),
+    CONSTRAINT pk_pages PRIMARY KEY (site_id, id),
+    CONSTRAINT fk_pages_site FOREIGN KEY (site_id) REFERENCES sites (id) ON DELETE CASCADE
+) PARTITION BY LIST (site_id);
+
+CREATE TABLE lemmas
+(
+    id        BIGINT       NOT NULL DEFAULT nextval('lemmas_id_seq'),
+    site_id   BIGINT       NOT NULL,
+    lemma     VARCHAR(255) NOT NULL,
+    frequency INT          NOT NULL,
+    CONSTRAINT pk_lemmas PRIMARY KEY (site_id, id),
+    CONSTRAINT fk_lemmas_site FOREIGN KEY (site_id) REFERENCES sites (id) ON DELETE CASCADE
+) PARTITION BY LIST (site_id);
+
+CREATE TABLE indexes
+(
+    id       BIGINT NOT NULL DEFAULT nextval('indexes_id_seq'),
+    site_id  BIGINT NOT NULL,
+    page_id  BIGINT NOT NULL,
+    lemma_id BIGINT NOT NULL,
+    rank     INT    NOT NULL,
+    CONSTRAINT pk_indexes PRIMARY KEY (site_id, id),
+    CONSTRAINT fk_indexes_site FOREIGN KEY (site_id) REFERENCES sites (id) ON DELETE CASCADE
+) PARTITION BY LIST (site_id);
+
+ALTER SEQUENCE pages_id_seq OWNED BY pages.id;
+ALTER SEQUENCE lemmas_id_seq OWNED BY lemmas.id;
+ALTER SEQUENCE indexes_id_seq OWNED BY indexes.id;
+
+-- Индексы создаются на родительских таблицах и наследуются каждой секцией.
+-- Отдельные индексы по id нужны для обращений по ключу без site_id (JPA, накопленные частоты лемм)
+CREATE INDEX idx_pages_id ON pages (id);
+CREATE INDEX idx_path ON pages (path);
+CREATE INDEX idx_pages_site_path ON pages (site_id, path);
+
+CREATE INDEX idx_lemmas_id ON lemmas (id);
+CREATE UNIQUE INDEX uq_lemmas_site_lemma ON lemmas (site_id, lemma);
+
+CREATE INDEX idx_indexes_lemma_page ON indexes (lemma_id, page_id) INCLUDE (rank);
+CREATE INDEX idx_indexes_page_lemma ON indexes (page_id, lemma_id) INCLUDE (rank);
+
+DO
+$$
+    DECLARE
+        site_key BIGINT;
+    BEGIN
+        FOR site_key IN SELECT id FROM sites
+            LOOP
+                EXECUTE format('CREATE TABLE pages_site_%s PARTITION OF pages FOR VALUES IN (%s)', site_key, site_key);
+                EXECUTE format('CREATE TABLE lemmas_site_%s PARTITION OF lemmas FOR VALUES IN (%s)', site_key, site_key);
+                EXECUTE format('CREATE TABLE indexes_site_%s PARTITION OF indexes FOR VALUES IN (%s)', site_key, site_key);
+            END LOOP;
+    END
+$$;
+
+CREATE TABLE pages_default PARTITION OF pages DEFAULT;
+CREATE TABLE lemmas_default PARTITION OF lemmas DEFAULT;
+CREATE TABLE indexes_default PARTITION OF indexes DEFAULT;
+
+INSERT INTO pages (id, site_id, path, code, content, etag, last_modified, content_hash)
+SELECT id, site_id, path, code, content, etag, last_modified, content_hash
+FROM pages_old
+WHERE site_id IS NOT NULL;
+
+INSERT INTO lemmas (id, site_id, lemma, frequency)
+SELECT id, site_id, lemma, frequency
+FROM lemmas_old
+WHERE site_id IS NOT NULL;
+
+INSERT INTO indexes (id, site_id, page_id, lemma_id, rank)
+SELECT i.id, p.site_id, i.page_id, i.lemma_id, i.rank
+FROM indexes_old i
+         JOIN pages_old p ON p.id = i.page_id
+WHERE p.site_id IS NOT NULL
+  AND i.lemma_id IS NOT NULL;
+
+DROP TABLE indexes_old, lemmas_old, pages_old;
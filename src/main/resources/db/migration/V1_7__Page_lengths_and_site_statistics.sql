@@ -0,0 +1,27 @@
+-- Длины страниц и сводки сайтов для ранжирования BM25.
+-- Длина страницы - число лемм на ней с повторами, то есть сумма рангов её строк индекса.
+-- Новые страницы получают длину при записи индекса, существующим она считается здесь.
+ALTER TABLE pages
+    ADD COLUMN lemma_count INT NOT NULL DEFAULT 0;
+
+UPDATE pages p
+SET lemma_count = c.lemma_count
+FROM (SELECT site_id, page_id, sum(rank) AS lemma_count FROM indexes GROUP BY site_id, page_id) c
+WHERE p.site_id = c.site_id
+  AND p.id = c.page_id;
+
+-- Число страниц сайта и сумма их длин. Запись индекса прибавляет к ним разницу,
+-- поиск читает одну строку на сайт вместо агрегата по его страницам
+CREATE TABLE site_statistics
+(
+    site_id     BIGINT NOT NULL,
+    pages       BIGINT NOT NULL,
+    lemma_count BIGINT NOT NULL,
+    CONSTRAINT pk_site_statistics PRIMARY KEY (site_id),
+    CONSTRAINT fk_site_statistics_site FOREIGN KEY (site_id) REFERENCES sites (id) ON DELETE CASCADE
+);
+
+INSERT INTO site_statistics (site_id, pages, lemma_count)
+SELECT site_id, count(*), sum(lemma_count)
+FROM pages
+GROUP BY site_id;
@@ -0,0 +1,39 @@
+-- Страница сайта хранится под одним путём: повторная вставка того же пути теперь ошибка, а не вторая строка
+-- с удвоенными частотами лемм. Уже накопившиеся дубли удаляются, остаётся строка с наименьшим id;
+-- частоты лемм и сводки сайтов уменьшаются на удалённые страницы.
+
+CREATE TEMPORARY TABLE duplicate_pages AS
+SELECT site_id, id, lemma_count
+FROM (SELECT site_id, id, lemma_count, row_number() OVER (PARTITION BY site_id, path ORDER BY id) AS n
+      FROM pages) p
+WHERE n > 1;
+
+UPDATE lemmas l
+SET frequency = l.frequency - c.pages
+FROM (SELECT i.site_id, i.lemma_id, count(*) AS pages
+      FROM indexes i
+               JOIN duplicate_pages d ON d.site_id = i.site_id AND d.id = i.page_id
+      GROUP BY i.site_id, i.lemma_id) c
+WHERE l.site_id = c.site_id
+  AND l.id = c.lemma_id;
+
+DELETE FROM indexes i USING duplicate_pages d WHERE i.site_id = d.site_id AND i.page_id = d.id;
+
+DELETE FROM pages p USING duplicate_pages d WHERE p.site_id = d.site_id AND p.id = d.id;
+
+DELETE FROM lemmas WHERE frequency <= 0;
+
+UPDATE site_statistics s
+SET pages       = s.pages - c.pages,
+    lemma_count = s.lemma_count - c.lemma_count
+FROM (SELECT site_id, count(*) AS pages, sum(lemma_count) AS lemma_count FROM duplicate_pages GROUP BY site_id) c
+WHERE s.site_id = c.site_id;
+
+DROP TABLE duplicate_pages;
+
+-- Уникальный индекс секционированной таблицы обязан включать site_id; он же заменяет idx_pages_site_path.
+-- CONCURRENTLY для секционированных таблиц не поддерживается, поэтому на всё время построения
+-- вставки в pages блокируются: миграцию нужно проводить при остановленной индексации
+CREATE UNIQUE INDEX uq_pages_site_path ON pages (site_id, path);
+
+DROP INDEX idx_pages_site_path;
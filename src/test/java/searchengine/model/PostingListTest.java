@@ -0,0 +1,188 @@
+package searchengine.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingListTest {
+
+    @Test
+    void intersectWithEmptyListIsEmpty() {
+        PostingList empty = list();
+        PostingList pages = list(1, 10, 2, 20);
+
+        assertTrue(empty.intersect(pages).isEmpty());
+        assertTrue(pages.intersect(empty).isEmpty());
+        assertTrue(empty.retainAll(empty).isEmpty());
+    }
+
+    @Test
+    void intersectDisjointListsIsEmpty() {
+        PostingList odd = list(1, 1, 3, 1, 5, 1);
+        PostingList even = list(2, 1, 4, 1, 6, 1);
+
+        assertTrue(odd.intersect(even).isEmpty());
+        assertTrue(even.retainAll(odd).isEmpty());
+    }
+
+    @Test
+    void intersectFindsFirstAndLastPages() {
+        PostingList first = list(1, 1, 5, 1, 9, 1);
+        PostingList second = list(1, 2, 4, 2, 9, 2);
+
+        PostingList result = first.intersect(second);
+
+        assertPages(result, 1, 9);
+        assertRanks(result, 3, 3);
+    }
+
+    @Test
+    void intersectListsOfVeryDifferentLengths() {
+        PostingList large = new PostingList(0);
+        for (long pageId = 1; pageId <= 10_000; pageId++) {
+            large.add(pageId, 1);
+        }
+        PostingList small = list(1, 5, 777, 5, 4096, 5, 10_000, 5, 10_001, 5);
+
+        assertPages(small.intersect(large), 1, 777, 4096, 10_000);
+        assertPages(large.intersect(small), 1, 777, 4096, 10_000);
+    }
+
+    @Test
+    void intersectSumsRanks() {
+        PostingList first = list(2, 3, 4, 5);
+        PostingList second = list(2, 10, 4, 20, 6, 30);
+
+        assertRanks(first.intersect(second), 13, 25);
+        assertRanks(second.intersect(first), 13, 25);
+    }
+
+    @Test
+    void retainAllKeepsOwnRanks() {
+        PostingList first = list(2, 3, 4, 5);
+        PostingList second = list(2, 10, 4, 20, 6, 30);
+
+        assertRanks(first.retainAll(second), 3, 5);
+        assertRanks(second.retainAll(first), 10, 20);
+    }
+
+    @Test
+    void putInsertsInOrderAndReplacesRank() {
+        PostingList pages = list(2, 1, 6, 1);
+
+        pages.put(4, 7);
+        pages.put(1, 7);
+        pages.put(8, 7);
+        pages.put(6, 9);
+
+        assertPages(pages, 1, 2, 4, 6, 8);
+        assertRanks(pages, 7, 1, 7, 9, 7);
+    }
+
+    @Test
+    void putGrowsPastInitialCapacity() {
+        PostingList pages = new PostingList(0);
+        for (long pageId = 100; pageId > 0; pageId--) {
+            pages.put(pageId, (int) pageId);
+        }
+
+        assertEquals(100, pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertEquals(i + 1, pages.getPageId(i));
+            assertEquals(i + 1, pages.getRank(i));
+        }
+    }
+
+    @Test
+    void removeDeletesOnlyPresentPage() {
+        PostingList pages = list(1, 1, 2, 2, 3, 3);
+
+        pages.remove(5);
+        pages.remove(1);
+        pages.remove(3);
+
+        assertPages(pages, 2);
+        assertRanks(pages, 2);
+    }
+
+    @Test
+    void removeAllDeletesListedPages() {
+        PostingList pages = list(1, 1, 2, 2, 3, 3, 4, 4, 5, 5);
+
+        pages.removeAll(new long[]{0, 1, 3, 5, 6});
+
+        assertPages(pages, 2, 4);
+        assertRanks(pages, 2, 4);
+    }
+
+    @Test
+    void removeAllWithEmptyArrayKeepsEverything() {
+        PostingList pages = list(1, 1, 2, 2);
+
+        pages.removeAll(new long[0]);
+
+        assertPages(pages, 1, 2);
+    }
+
+    @Test
+    void indexOfReturnsInsertionPointOutsideBounds() {
+        PostingList pages = list(10, 1, 20, 1, 30, 1);
+
+        assertEquals(0, pages.indexOf(10));
+        assertEquals(2, pages.indexOf(30));
+        assertEquals(-1, pages.indexOf(5));
+        assertEquals(-2, pages.indexOf(15));
+        assertEquals(-4, pages.indexOf(40));
+        assertEquals(-1, list().indexOf(1));
+    }
+
+    @Test
+    void indexOfIgnoresSpareCapacity() {
+        PostingList pages = new PostingList(16);
+        pages.add(1, 1);
+
+        // Хвост массива заполнен нулями, поиск не должен в него заходить
+        assertEquals(-2, pages.indexOf(2));
+        assertEquals(-1, pages.indexOf(0));
+    }
+
+    @Test
+    void copyAndTrimToSizeKeepContent() {
+        PostingList pages = list(1, 1, 2, 2);
+        PostingList copy = pages.copy();
+        copy.put(3, 3);
+        pages.trimToSize();
+
+        assertPages(pages, 1, 2);
+        assertPages(copy, 1, 2, 3);
+    }
+
+    /**
+     * @param pairs id страницы и ранг поочерёдно
+     */
+    private static PostingList list(long... pairs) {
+        PostingList list = new PostingList(pairs.length / 2);
+        for (int i = 0; i < pairs.length; i += 2) {
+            list.add(pairs[i], (int) pairs[i + 1]);
+        }
+        return list;
+    }
+
+    private static void assertPages(PostingList list, long... expected) {
+        long[] actual = new long[list.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = list.getPageId(i);
+        }
+        assertArrayEquals(expected, actual);
+    }
+
+    private static void assertRanks(PostingList list, int... expected) {
+        int[] actual = new int[list.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = list.getRank(i);
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,181 @@
+package searchengine.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.PostgresContainerTest;
+import searchengine.services.SitePartitionService;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет по EXPLAIN, что запросы поиска и индексации обслуживаются индексами из миграций
+ * и читают только секции своего сайта. Запросы повторяют SearchIndexRepository, BulkIndexWriter,
+ * PageReindexService и производные запросы репозиториев JPA.
+ * Последовательное чтение выключено: на тестовом объёме планировщик мог бы выбрать его по стоимости,
+ * а проверяется то, что индекс подходит запросу.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IndexUsageTest extends PostgresContainerTest {
+
+    private static final long SITE_ID = 1;
+
+    private static final long OTHER_SITE_ID = 2;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long pageId;
+
+    private long lemmaId;
+
+    @BeforeEach
+    void fillIndex() {
+        SitePartitionService partitions = new SitePartitionService(jdbcTemplate);
+        for (long siteId : new long[]{SITE_ID, OTHER_SITE_ID}) {
+            jdbcTemplate.update("INSERT INTO sites (id, status, status_time, url, name) VALUES (?, 'INDEXED', now(), ?, ?)",
+                    siteId, "https://site" + siteId + ".example", "site" + siteId);
+            partitions.createPartitions(siteId);
+        }
+        jdbcTemplate.update("INSERT INTO pages (site_id, path, code, content, lemma_count) " +
+                "SELECT s, '/page/' || n, 200, 'текст', 10 FROM generate_series(1, 2) s, generate_series(1, 1000) n");
+        jdbcTemplate.update("INSERT INTO lemmas (site_id, lemma, frequency) " +
+                "SELECT s, 'лемма' || n, 1 FROM generate_series(1, 2) s, generate_series(1, 1000) n");
+        jdbcTemplate.update("INSERT INTO indexes (site_id, page_id, lemma_id, rank) " +
+                "SELECT p.site_id, p.id, l.id, 1 FROM pages p JOIN lemmas l ON l.site_id = p.site_id " +
+                "WHERE (p.id + l.id) % 50 = 0");
+        jdbcTemplate.execute("ANALYZE sites, pages, lemmas, indexes");
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        pageId = jdbcTemplate.queryForObject("SELECT min(page_id) FROM indexes WHERE site_id = ?", Long.class, SITE_ID);
+        lemmaId = jdbcTemplate.queryForObject("SELECT min(lemma_id) FROM indexes WHERE site_id = ?", Long.class, SITE_ID);
+    }
+
+    @Test
+    void findLemmasUsesSiteLemmaIndex() {
+        String plan = explain("SELECT id, site_id, lemma, frequency FROM lemmas " +
+                        "WHERE site_id = ANY(?::bigint[]) AND lemma = ANY(?::varchar[]) AND frequency > 0",
+                new Long[]{SITE_ID}, new String[]{"лемма1", "лемма2"});
+
+        assertUsesIndex(plan, "uq_lemmas_site_lemma", "lemmas");
+        assertPruned(plan, "lemmas");
+    }
+
+    @Test
+    void findPostingsUsesLemmaPageIndex() {
+        String plan = explain("SELECT page_id, rank FROM indexes WHERE site_id = ? AND lemma_id = ? ORDER BY page_id",
+                SITE_ID, lemmaId);
+
+        assertUsesIndex(plan, "idx_indexes_lemma_page", "indexes");
+        assertPruned(plan, "indexes");
+    }
+
+    @Test
+    void findPostingsAmongCandidatesUsesLemmaPageIndex() {
+        String plan = explain("SELECT page_id, rank FROM indexes WHERE site_id = ? AND lemma_id = ? " +
+                        "AND page_id = ANY(?::bigint[]) ORDER BY page_id",
+                SITE_ID, lemmaId, new Long[]{pageId, pageId + 1});
+
+        assertUsesIndex(plan, "idx_indexes_lemma_page", "indexes");
+        assertPruned(plan, "indexes");
+    }
+
+    @Test
+    void findPageLengthsUsesPageKey() {
+        String plan = explain("SELECT id, lemma_count FROM pages WHERE site_id = ? AND id = ANY(?::bigint[]) ORDER BY id",
+                SITE_ID, new Long[]{pageId, pageId + 1});
+
+        assertTrue(plan.contains(partitionIndex("pk_pages", "pages")) || plan.contains(partitionIndex("idx_pages_id", "pages")),
+                plan);
+        assertPruned(plan, "pages");
+    }
+
+    @Test
+    void findSiteByUrlUsesUrlIndex() {
+        String plan = explain("SELECT id FROM sites WHERE url = ?", "https://site1.example");
+
+        assertTrue(plan.contains("idx_sites_url"), plan);
+    }
+
+    @Test
+    void findPageBySitePathUsesUniqueKey() {
+        String plan = explain("SELECT id FROM pages WHERE site_id = ? AND path = ?", SITE_ID, "/page/1");
+
+        assertUsesIndex(plan, "uq_pages_site_path", "pages");
+        assertPruned(plan, "pages");
+    }
+
+    @Test
+    void findPageContentUsesIdIndex() {
+        String plan = explain("SELECT content FROM pages WHERE id = ?", pageId);
+
+        assertUsesIndex(plan, "idx_pages_id", "pages");
+    }
+
+    @Test
+    void readPageLemmasUsesPageLemmaIndex() {
+        String plan = explain("SELECT l.lemma, i.lemma_id, i.rank FROM indexes i " +
+                "JOIN lemmas l ON l.site_id = i.site_id AND l.id = i.lemma_id WHERE i.site_id = ? AND i.page_id = ?",
+                SITE_ID, pageId);
+
+        assertUsesIndex(plan, "idx_indexes_page_lemma", "indexes");
+        assertPruned(plan, "indexes");
+        assertPruned(plan, "lemmas");
+    }
+
+    @Test
+    void deletePageLemmasUsesPageLemmaIndex() {
+        String plan = explain("DELETE FROM indexes WHERE site_id = ? AND page_id = ? AND lemma_id = ANY(?)",
+                SITE_ID, pageId, new Long[]{lemmaId});
+
+        assertUsesIndex(plan, "idx_indexes_page_lemma", "indexes");
+        assertPruned(plan, "indexes");
+    }
+
+    @Test
+    void addLemmaFrequenciesUsesIdIndex() {
+        String plan = explain("UPDATE lemmas SET frequency = lemmas.frequency + delta.value " +
+                        "FROM (SELECT unnest(?::bigint[]) AS id, unnest(?::int[]) AS value) delta " +
+                        "WHERE lemmas.id = delta.id",
+                new Long[]{lemmaId}, new Integer[]{1});
+
+        assertUsesIndex(plan, "idx_lemmas_id", "lemmas");
+    }
+
+    private String explain(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+
+    private void assertUsesIndex(String plan, String parentIndex, String table) {
+        String index = partitionIndex(parentIndex, table);
+        assertTrue(plan.contains(index), "expected " + index + " in\n" + plan);
+    }
+
+    /**
+     * Секции других сайтов и секция по умолчанию в плане не появляются.
+     */
+    private void assertPruned(String plan, String table) {
+        assertTrue(plan.contains(partition(table, SITE_ID)), plan);
+        assertFalse(plan.contains(partition(table, OTHER_SITE_ID)), plan);
+        assertFalse(plan.contains(table + "_default"), plan);
+    }
+
+    /**
+     * Индекс на секционированной таблице - шаблон, в плане видны его копии в секциях.
+     */
+    private String partitionIndex(String parentIndex, String table) {
+        return jdbcTemplate.queryForObject("SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_index x ON x.indexrelid = c.oid " +
+                        "WHERE i.inhparent = ?::regclass AND x.indrelid = ?::regclass",
+                String.class, parentIndex, partition(table, SITE_ID));
+    }
+
+    private static String partition(String table, long siteId) {
+        return table + "_site_" + siteId;
+    }
+}
@@ -0,0 +1,174 @@
+package searchengine.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.PostgresContainerTest;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SiteRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Запись пачки новых страниц через {@link BulkIndexWriter} - путь, которым пишет индексация.
+ * Число запросов не должно зависеть от размера пачки: страницы уходят одним INSERT, сводка сайта -
+ * одним upsert, строки индекса - через COPY. Запросы считаются по подготовленным на соединении операторам.
+ * Транзакция теста выключена, чтобы замерять запись с фиксацией каждого запроса, как в конвейере.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class BulkIndexWriterBatchTest extends PostgresContainerTest {
+
+    private static final int LEMMAS_PER_PAGE = 5;
+
+    private static final int DISTINCT_LEMMAS = 500;
+
+    /**
+     * INSERT страниц и upsert сводки сайта; COPY идёт мимо подготовленных операторов
+     */
+    private static final int STATEMENTS_PER_WRITE = 2;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private LemmaRepository lemmaRepository;
+
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private BulkIndexWriter bulkIndexWriter;
+
+    private SitePartitionService partitions;
+
+    private long siteId;
+
+    @BeforeEach
+    void createSite() {
+        bulkIndexWriter = new BulkIndexWriter(new JdbcTemplate(countingDataSource()), lemmaRepository,
+                mock(InMemorySearchIndex.class), mock(SearchResultCache.class));
+        Site site = new Site();
+        site.setStatus(Status.INDEXING);
+        site.setStatusTime(Instant.now());
+        site.setUrl("https://site.example");
+        site.setName("site");
+        siteId = siteRepository.saveAndFlush(site).getId();
+        partitions = new SitePartitionService(jdbcTemplate);
+        partitions.createPartitions(siteId);
+    }
+
+    @AfterEach
+    void dropSite() {
+        partitions.dropPartitions(siteId);
+        jdbcTemplate.update("DELETE FROM sites WHERE id = ?", siteId);
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithBatchSize() {
+        int smallBatchStatements = write(0, 100);
+        int largeBatchStatements = write(100, 2_000);
+
+        assertEquals(STATEMENTS_PER_WRITE, smallBatchStatements);
+        assertEquals(STATEMENTS_PER_WRITE, largeBatchStatements);
+        assertEquals(2_100L, jdbcTemplate.queryForObject("SELECT count(*) FROM pages WHERE site_id = ?",
+                Long.class, siteId));
+        assertEquals(2_100L * LEMMAS_PER_PAGE, jdbcTemplate.queryForObject("SELECT count(*) FROM indexes WHERE site_id = ?",
+                Long.class, siteId));
+    }
+
+    /**
+     * @return сколько операторов подготовлено на соединении за одну запись
+     */
+    private int write(int from, int count) {
+        Site site = new Site();
+        site.setId(siteId);
+        List<Page> pages = new ArrayList<>(count);
+        List<Map<String, Integer>> ranks = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            Page page = new Page();
+            page.setSite(site);
+            page.setPath("/page/" + i);
+            page.setCode(200);
+            page.setContent("<p>страница " + i + "</p>");
+            pages.add(page);
+            Map<String, Integer> pageRanks = new HashMap<>();
+            for (int j = 0; j < LEMMAS_PER_PAGE; j++) {
+                pageRanks.put("лемма" + (i + j) % DISTINCT_LEMMAS, j + 1);
+            }
+            ranks.add(pageRanks);
+        }
+
+        statements.set(0);
+        long start = System.nanoTime();
+        BulkIndexWriter.WriteResult result = bulkIndexWriter.write(pages, ranks, this::insertLemmas);
+        long elapsedNanos = System.nanoTime() - start;
+
+        log.info("Wrote {} pages, {} rows in {} ms, {} rows/s", count, result.getRows(), elapsedNanos / 1_000_000,
+                Math.round(result.getRows() * 1e9 / elapsedNanos));
+        assertEquals((long) count * (1 + LEMMAS_PER_PAGE), result.getRows());
+        return statements.get();
+    }
+
+    private Map<Long, Map<String, Long>> insertLemmas(Map<Long, Set<String>> lemmasBySite) {
+        Map<Long, Map<String, Long>> lemmaIds = new HashMap<>();
+        lemmasBySite.forEach((id, lemmas) -> lemmaIds.put(id, bulkIndexWriter.insertLemmas(id, lemmas)));
+        return lemmaIds;
+    }
+
+    private DataSource countingDataSource() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(method, dataSource, args);
+                    return result instanceof Connection connection ? countingConnection(connection) : result;
+                });
+    }
+
+    private Connection countingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                        statements.incrementAndGet();
+                    }
+                    return invoke(method, connection, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
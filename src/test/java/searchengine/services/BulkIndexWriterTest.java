@@ -0,0 +1,122 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import searchengine.PostgresContainerTest;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.model.Status;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SiteRepository;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Пачка новых страниц, в которой путь одной уже записан, не должна терять остальные страницы.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BulkIndexWriterTest extends PostgresContainerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SiteRepository siteRepository;
+
+    @Autowired
+    private LemmaRepository lemmaRepository;
+
+    private BulkIndexWriter bulkIndexWriter;
+
+    private PageReindexService pageReindexService;
+
+    private Site site;
+
+    @BeforeEach
+    void createSite() {
+        InMemorySearchIndex inMemorySearchIndex = mock(InMemorySearchIndex.class);
+        SearchResultCache searchResultCache = mock(SearchResultCache.class);
+        bulkIndexWriter = new BulkIndexWriter(jdbcTemplate, lemmaRepository, inMemorySearchIndex, searchResultCache);
+        pageReindexService = new PageReindexService(jdbcTemplate, lemmaRepository, inMemorySearchIndex, searchResultCache);
+
+        site = new Site();
+        site.setStatus(Status.INDEXING);
+        site.setStatusTime(Instant.now());
+        site.setUrl("https://site.example");
+        site.setName("site");
+        siteRepository.saveAndFlush(site);
+        new SitePartitionService(jdbcTemplate).createPartitions(site.getId());
+    }
+
+    @Test
+    void batchWithStoredPathKeepsOtherPages() {
+        pageReindexService.reindex(page("/stored", "старый"), Map.of("старый", 1));
+
+        List<Page> pages = List.of(page("/first", "первый"), page("/stored", "новый"), page("/second", "второй"));
+        List<Map<String, Integer>> ranks = List.of(Map.of("первый", 1), Map.of("новый", 2), Map.of("второй", 3));
+
+        BulkIndexWriter.WriteResult result = bulkIndexWriter.write(pages, ranks, this::insertLemmas);
+
+        assertEquals(List.of(1), result.getConflicts());
+        assertNotNull(pages.get(0).getId());
+        assertNull(pages.get(1).getId());
+        assertNotNull(pages.get(2).getId());
+        assertEquals(2 + 1 + 1, result.getRows());
+        assertEquals(3, countRows("SELECT count(*) FROM pages WHERE site_id = ?"));
+        assertEquals(3, countRows("SELECT count(*) FROM indexes WHERE site_id = ?"));
+        assertEquals(3, countRows("SELECT pages FROM site_statistics WHERE site_id = ?"));
+    }
+
+    @Test
+    void conflictingPageIsWrittenOverStoredOne() {
+        Page stored = page("/stored", "старый");
+        pageReindexService.reindex(stored, Map.of("старый", 1, "общий", 1));
+        Page conflicting = page("/stored", "новый");
+
+        pageReindexService.reindex(conflicting, Map.of("новый", 2, "общий", 1));
+
+        assertEquals(stored.getId(), conflicting.getId());
+        assertEquals(1, countRows("SELECT count(*) FROM pages WHERE site_id = ?"));
+        assertEquals("<p>новый</p>", jdbcTemplate.queryForObject("SELECT content FROM pages WHERE id = ?",
+                String.class, stored.getId()));
+        Map<String, Integer> frequencies = new HashMap<>();
+        jdbcTemplate.query("SELECT lemma, frequency FROM lemmas WHERE site_id = ?",
+                (RowCallbackHandler) rs -> frequencies.put(rs.getString(1), rs.getInt(2)), site.getId());
+        assertEquals(Map.of("старый", 0, "новый", 1, "общий", 1), frequencies);
+        assertEquals(3, countRows("SELECT lemma_count FROM pages WHERE site_id = ?"));
+    }
+
+    private Map<Long, Map<String, Long>> insertLemmas(Map<Long, Set<String>> lemmasBySite) {
+        Map<Long, Map<String, Long>> lemmaIds = new HashMap<>();
+        lemmasBySite.forEach((siteId, lemmas) -> lemmaIds.put(siteId, bulkIndexWriter.insertLemmas(siteId, lemmas)));
+        return lemmaIds;
+    }
+
+    private Page page(String path, String text) {
+        Page page = new Page();
+        page.setSite(site);
+        page.setPath(path);
+        page.setCode(200);
+        page.setContent("<p>" + text + "</p>");
+        return page;
+    }
+
+    private long countRows(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class, site.getId());
+    }
+}
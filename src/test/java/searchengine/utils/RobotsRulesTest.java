@@ -0,0 +1,170 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RobotsRulesTest {
+
+    private static final String ROBOT = "SearchEngineBot/1.0";
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource({
+            "/, true",
+            "/private, false",
+            "/private/page, false",
+            "/private/public, true",
+            "/private/public/page, true",
+            "/privateer, false",
+            "/page, true"
+    })
+    void longestMatchWins(String path, boolean allowed) {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /private
+                Allow: /private/public
+                """, ROBOT);
+
+        assertEquals(allowed, rules.isAllowed(path));
+    }
+
+    @Test
+    void allowWinsRulesOfEqualLength() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /page
+                Allow: /page
+                """, ROBOT);
+
+        assertTrue(rules.isAllowed("/page"));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource({
+            "/file.php, false",
+            "/dir/file.php, false",
+            "/file.php?x=1, true",
+            "/file.phpx, true",
+            "/search?q=word, false",
+            "/search, true",
+            "/a/print/b, false",
+            "/print, true",
+            "/only$, true",
+            "/only, false"
+    })
+    void wildcardsAndEndAnchor(String path, boolean allowed) {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*.php$
+                Disallow: /search?
+                Disallow: /*/print/
+                Disallow: /only$
+                """, ROBOT);
+
+        assertEquals(allowed, rules.isAllowed(path));
+    }
+
+    @Test
+    void ownGroupReplacesCommonGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /
+
+                User-agent: OtherBot
+                Disallow: /other
+
+                User-agent: searchenginebot
+                Disallow: /own
+                Crawl-delay: 2
+                """, ROBOT);
+
+        assertTrue(rules.isAllowed("/page"));
+        assertTrue(rules.isAllowed("/other"));
+        assertFalse(rules.isAllowed("/own"));
+        assertEquals(Duration.ofSeconds(2), rules.getCrawlDelay());
+    }
+
+    @Test
+    void commonGroupAppliesWithoutOwnGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: OtherBot
+                Disallow: /
+
+                User-agent: *
+                Disallow: /admin
+                """, ROBOT);
+
+        assertTrue(rules.isAllowed("/page"));
+        assertFalse(rules.isAllowed("/admin"));
+    }
+
+    @Test
+    void emptyOwnGroupAllowsEverything() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /
+
+                User-agent: SearchEngineBot
+                Disallow:
+                """, ROBOT);
+
+        assertTrue(rules.isAllowed("/page"));
+    }
+
+    @Test
+    void consecutiveAgentsShareOneGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: OtherBot
+                User-agent: SearchEngineBot
+                Disallow: /shared
+                """, ROBOT);
+
+        assertFalse(rules.isAllowed("/shared"));
+    }
+
+    @Test
+    void crawlDelayIsParsedInSeconds() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Crawl-delay: 0.5
+                """, ROBOT);
+
+        assertEquals(Duration.ofMillis(500), rules.getCrawlDelay());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0", "-1", "soon"})
+    void invalidCrawlDelayIsIgnored(String delay) {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nCrawl-delay: " + delay, ROBOT);
+
+        assertNull(rules.getCrawlDelay());
+    }
+
+    @Test
+    void commentsAndSitemapsAreHandled() {
+        RobotsRules rules = RobotsRules.parse("""
+                # правила для всех
+                User-agent: * # любой робот
+                Disallow: /tmp # временные файлы
+                Sitemap: https://example.com/sitemap.xml
+                """, ROBOT);
+
+        assertFalse(rules.isAllowed("/tmp/file"));
+        assertTrue(rules.isAllowed("/page"));
+        assertEquals(List.of("https://example.com/sitemap.xml"), rules.getSitemaps());
+    }
+
+    @Test
+    void allowAllHasNoRules() {
+        assertTrue(RobotsRules.ALLOW_ALL.isAllowed("/any/path"));
+        assertNull(RobotsRules.ALLOW_ALL.getCrawlDelay());
+    }
+}
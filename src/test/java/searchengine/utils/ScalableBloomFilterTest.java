@@ -0,0 +1,85 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void emptyFilterContainsNothing() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(16, FALSE_POSITIVE_RATE);
+
+        assertFalse(filter.mightContain(ScalableBloomFilter.fingerprint("https://example.com/")));
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void noFalseNegativesAcrossGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, FALSE_POSITIVE_RATE);
+        int count = 100_000;
+        long initialMemory = filter.memoryBytes();
+
+        for (int i = 0; i < count; i++) {
+            filter.put(ScalableBloomFilter.fingerprint(url(i)));
+            // Проверяются и элементы прежних ступеней, пока добавляются новые
+            if (i % 997 == 0) {
+                for (int j = 0; j <= i; j += 101) {
+                    assertTrue(filter.mightContain(ScalableBloomFilter.fingerprint(url(j))), url(j));
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(filter.mightContain(ScalableBloomFilter.fingerprint(url(i))), url(i));
+        }
+        assertEquals(count, filter.size());
+        assertTrue(filter.memoryBytes() > initialMemory, "filter did not grow");
+    }
+
+    @Test
+    void falsePositiveRateStaysWithinBoundAfterGrowth() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, FALSE_POSITIVE_RATE);
+        int count = 50_000;
+        for (int i = 0; i < count; i++) {
+            filter.put(ScalableBloomFilter.fingerprint(url(i)));
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = count; i < count + probes; i++) {
+            if (filter.mightContain(ScalableBloomFilter.fingerprint(url(i)))) {
+                falsePositives++;
+            }
+        }
+
+        double observed = (double) falsePositives / probes;
+        assertTrue(observed <= FALSE_POSITIVE_RATE, "observed false positive rate " + observed);
+        assertTrue(filter.estimatedFalsePositiveRate() <= FALSE_POSITIVE_RATE,
+                "estimated false positive rate " + filter.estimatedFalsePositiveRate());
+    }
+
+    @Test
+    void fingerprintIsStable() {
+        assertEquals(ScalableBloomFilter.fingerprint("https://example.com/a"),
+                ScalableBloomFilter.fingerprint(new StringBuilder("https://example.com/a")));
+        assertTrue(ScalableBloomFilter.fingerprint("https://example.com/a")
+                != ScalableBloomFilter.fingerprint("https://example.com/b"));
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(0, FALSE_POSITIVE_RATE));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(16, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(16, 1));
+    }
+
+    private static String url(int i) {
+        return "https://example.com/page/" + i;
+    }
+}
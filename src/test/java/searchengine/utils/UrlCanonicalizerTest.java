@@ -0,0 +1,75 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UrlCanonicalizerTest {
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(
+            List.of("pdf", "JPG"), List.of("/login"), List.of("sessionId"), true);
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiterString = " -> ", nullValues = "EXCLUDED", value = {
+            // Схема, хост и порт по умолчанию
+            "HTTP://Example.COM/Path -> http://example.com/Path",
+            "http://example.com:80/a -> http://example.com/a",
+            "https://example.com:443/a -> https://example.com/a",
+            "https://example.com:8443/a -> https://example.com:8443/a",
+            "http://example.com:443/a -> http://example.com:443/a",
+            // Корень
+            "http://example.com -> http://example.com/",
+            "http://example.com/ -> http://example.com/",
+            "http://example.com// -> http://example.com/",
+            // Точки, повторные и завершающие слэши, фрагмент
+            "http://example.com/a/./b/../c -> http://example.com/a/c",
+            "http://example.com/a//b///c/ -> http://example.com/a/b/c",
+            "http://example.com/a/ -> http://example.com/a",
+            "http://example.com/a#section -> http://example.com/a",
+            // Экранирование
+            "http://example.com/новости -> http://example.com/%D0%BD%D0%BE%D0%B2%D0%BE%D1%81%D1%82%D0%B8",
+            "http://example.com/a b -> http://example.com/a%20b",
+            "http://example.com/a%20b -> http://example.com/a%20b",
+            "' http://example.com/a ' -> http://example.com/a",
+            // Параметры запроса
+            "http://example.com/a?b=2&a=1 -> http://example.com/a?a=1&b=2",
+            "http://example.com/a?utm_source=x&b=2&UTM_medium=y -> http://example.com/a?b=2",
+            "http://example.com/a?SESSIONID=1 -> http://example.com/a",
+            "http://example.com/a?&&b -> http://example.com/a?b",
+            // Исключённые расширения и части адреса
+            "http://example.com/file.pdf -> EXCLUDED",
+            "http://example.com/image.jpg -> EXCLUDED",
+            "http://example.com/IMAGE.Jpg -> EXCLUDED",
+            "http://example.com/file.pdf/ -> EXCLUDED",
+            "http://example.com/docs.pdf/view -> http://example.com/docs.pdf/view",
+            "http://example.com/page.html -> http://example.com/page.html",
+            "http://example.com/Login?next=1 -> EXCLUDED",
+            // Не http(s) и некорректные адреса
+            "ftp://example.com/a -> EXCLUDED",
+            "mailto:user@example.com -> EXCLUDED",
+            "javascript:void(0) -> EXCLUDED",
+            "/relative/path -> EXCLUDED",
+            "http:// -> EXCLUDED"
+    })
+    void canonicalize(String url, String expected) {
+        assertEquals(expected, canonicalizer.canonicalize(url));
+    }
+
+    @Test
+    void dropsQueryWhenQueryStringsAreNotKept() {
+        UrlCanonicalizer withoutQueries = new UrlCanonicalizer(List.of(), List.of(), List.of(), false);
+
+        assertEquals("http://example.com/a", withoutQueries.canonicalize("http://example.com/a?b=2&a=1"));
+    }
+
+    @Test
+    void equivalentAddressesHaveOneCanonicalForm() {
+        String canonical = canonicalizer.canonicalize("https://example.com/a/b?x=1&y=2");
+
+        assertEquals(canonical, canonicalizer.canonicalize("HTTPS://EXAMPLE.com:443//a/./b/?y=2&utm_campaign=z&x=1#top"));
+    }
+}
@@ -0,0 +1,78 @@
+package searchengine.worker;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.properties.CrawlerProperties;
+import searchengine.model.CrawlUrlStatus;
+import searchengine.model.PageUrl;
+import searchengine.services.CrawlCheckpointService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrawlFrontierTest {
+
+    private static final long SITE_ID = 1L;
+
+    private final CrawlCheckpointService checkpointService = mock(CrawlCheckpointService.class);
+
+    private final List<Runnable> prefetches = new ArrayList<>();
+
+    private final AtomicInteger refills = new AtomicInteger();
+
+    @Test
+    void pendingUrlsAreLoadedOutsidePoll() {
+        CrawlFrontier frontier = frontier(2);
+        frontier.offerAll(List.of(url("/a"), url("/b"), url("/c")));
+        verify(checkpointService).save(eq(SITE_ID), anyList(), eq(CrawlUrlStatus.PENDING));
+
+        assertEquals("/a", frontier.poll().getPath());
+        assertEquals("/b", frontier.poll().getPath());
+        assertNull(frontier.poll());
+        assertFalse(frontier.isEmpty());
+        verify(checkpointService, never()).takePending(eq(SITE_ID), anyInt());
+        assertEquals(1, prefetches.size());
+
+        when(checkpointService.takePending(eq(SITE_ID), anyInt())).thenReturn(List.of(url("/c")));
+        prefetches.get(0).run();
+
+        assertEquals(1, refills.get());
+        assertEquals("/c", frontier.poll().getPath());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test
+    void failedPrefetchDoesNotKeepCrawlRunning() {
+        CrawlFrontier frontier = frontier(1);
+        frontier.offerAll(List.of(url("/a"), url("/b")));
+        frontier.poll();
+
+        when(checkpointService.takePending(eq(SITE_ID), anyInt())).thenThrow(new IllegalStateException("connection lost"));
+        prefetches.get(0).run();
+
+        assertEquals(1, refills.get());
+        assertTrue(frontier.isEmpty());
+    }
+
+    private CrawlFrontier frontier(int capacity) {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.setFrontierCapacity(capacity);
+        return new CrawlFrontier(SITE_ID, checkpointService, properties, prefetches::add, refills::incrementAndGet);
+    }
+
+    private static PageUrl url(String path) {
+        return new PageUrl("https://site.example" + path, path, 1);
+    }
+}
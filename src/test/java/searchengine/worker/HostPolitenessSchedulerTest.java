@@ -0,0 +1,40 @@
+package searchengine.worker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostPolitenessSchedulerTest {
+
+    private static final String HOST = "https://site.example";
+
+    @Test
+    void rejectedDelayedTaskReleasesSlotAndNotifiesCaller() throws InterruptedException {
+        HostPolitenessScheduler scheduler = new HostPolitenessScheduler(Duration.ofMillis(10), 2);
+        List<Runnable> accepted = new ArrayList<>();
+        Executor closed = task -> {
+            throw new RejectedExecutionException("shut down");
+        };
+        CountDownLatch rejected = new CountDownLatch(1);
+
+        try {
+            assertTrue(scheduler.trySchedule(HOST, () -> { }, accepted::add, () -> { }));
+            assertTrue(scheduler.trySchedule(HOST, () -> { }, closed, rejected::countDown));
+
+            assertTrue(rejected.await(1, TimeUnit.SECONDS));
+            assertEquals(1, accepted.size());
+            assertTrue(scheduler.trySchedule(HOST, () -> { }, accepted::add, () -> { }));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}